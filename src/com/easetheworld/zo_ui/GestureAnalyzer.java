@@ -1,36 +1,73 @@
 package com.easetheworld.zo_ui;
 
+import java.io.File;
+import java.io.IOException;
+
 import android.app.Activity;
 import android.content.Context;
-import android.graphics.PointF;
 import android.os.Bundle;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.ListView;
-import dev.easetheworld.recentbuffer.RecentBuffer;
-import dev.easetheworld.ui.zo.StrokeTracker;
+import android.widget.Toast;
+import dev.easetheworld.ui.zo.GestureTrace;
+import dev.easetheworld.ui.zo.GestureTraceWriter;
+import dev.easetheworld.ui.zo.TraceRecorder;
 
 public class GestureAnalyzer extends Activity {
 	
+	// trace dumped by ZOTouchListener, in the app files dir.
+	static final String TRACE_FILE_NAME = "zo_trace.bin";
+	
+	// every sample painted while recording, in the app files dir. replay it with GestureReplay.
+	static final String SESSION_FILE_NAME = "zo_session.zgt";
+	
+	private static final int MENU_LOAD_TRACE = 1;
+	private static final int MENU_RECORD_SESSION = 2;
+	private static final int MENU_LOAD_SESSION = 3;
+	
+	private GestureTraceWriter mSessionWriter;
+	
 	private TouchPaintView mTouchPaintView;
 	private CheckBox mModeCheckBox;
 	private ListView mResultList;
+	private StrokeAnalysis mAnalysis;
+	private ResultAdapter mResultAdapter;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.gesture_analyzer);
         
-        mTracker = new StrokeTracker(this);
-        
         mTouchPaintView = (TouchPaintView)findViewById(R.id.touchPaintView);
         
+        // analyzed while captured, shown when the mode is checked
+        mAnalysis = new StrokeAnalysis(mTouchPaintView.getTouchData(), ViewConfiguration.get(this).getScaledTouchSlop());
+        mAnalysis.update();
+        mTouchPaintView.setOnTouchDataListener(new TouchPaintView.OnTouchDataListener() {
+			@Override
+			public void onTouchDataCleared() {
+				mAnalysis.clear();
+				mResultAdapter.notifyDataSetChanged();
+			}
+			
+			@Override
+			public void onTouchDataAdded() {
+				mAnalysis.update();
+				mResultAdapter.notifyDataSetChanged();
+			}
+		});
+        mResultAdapter = new ResultAdapter(this, mAnalysis);
+        
         mResultList = (ListView)findViewById(android.R.id.list);
         mResultList.setDivider(null);
         mResultList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
@@ -39,6 +76,27 @@ public class GestureAnalyzer extends Activity {
 				mTouchPaintView.highlightPoint(position);
 			}
 		});
+        mResultList.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+			@Override
+			public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+				mTouchPaintView.fitPoints(mResultList.getFirstVisiblePosition(), mResultList.getLastVisiblePosition());
+				return true;
+			}
+		});
+        
+        mTouchPaintView.setOnPointTapListener(new TouchPaintView.OnPointTapListener() {
+			@Override
+			public void onPointTap(final int index) {
+				// scroll the tapped point to the middle of the list, then mark it. scrolling resets the mark.
+				mResultList.setSelectionFromTop(index, mResultList.getHeight() / 2);
+				mResultList.post(new Runnable() {
+					@Override
+					public void run() {
+						mTouchPaintView.highlightPoint(index);
+					}
+				});
+			}
+		});
         
         mResultList.setOnScrollListener(new AbsListView.OnScrollListener() {
 			
@@ -61,10 +119,191 @@ public class GestureAnalyzer extends Activity {
         setAnalyzeMode(false);
     }
     
+    @Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+    	menu.add(0, MENU_LOAD_TRACE, 0, "Load trace");
+    	menu.add(0, MENU_RECORD_SESSION, 0, "Record session");
+    	menu.add(0, MENU_LOAD_SESSION, 0, "Load session");
+		return true;
+	}
+
+	@Override
+	public boolean onPrepareOptionsMenu(Menu menu) {
+		menu.findItem(MENU_RECORD_SESSION).setTitle(mSessionWriter == null ? "Record session" : "Stop recording");
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		switch(item.getItemId()) {
+		case MENU_LOAD_TRACE:
+			loadTrace(getFileStreamPath(TRACE_FILE_NAME));
+			return true;
+		case MENU_RECORD_SESSION:
+			if (mSessionWriter == null)
+				startRecording(getFileStreamPath(SESSION_FILE_NAME));
+			else
+				stopRecording();
+			return true;
+		case MENU_LOAD_SESSION:
+			stopRecording();
+			loadSession(getFileStreamPath(SESSION_FILE_NAME));
+			return true;
+		}
+		return super.onOptionsItemSelected(item);
+	}
+	
+	@Override
+	protected void onPause() {
+		super.onPause();
+		stopRecording();
+	}
+	
+	private void startRecording(File file) {
+		try {
+			mSessionWriter = new GestureTraceWriter(file);
+		} catch (IOException e) {
+			Toast.makeText(this, "Cannot record "+file+" : "+e.getMessage(), Toast.LENGTH_SHORT).show();
+			return;
+		}
+		mTouchPaintView.setGestureTraceWriter(mSessionWriter);
+	}
+	
+	private void stopRecording() {
+		if (mSessionWriter == null)
+			return;
+		mTouchPaintView.setGestureTraceWriter(null);
+		try {
+			mSessionWriter.close();
+		} catch (IOException e) {
+			Toast.makeText(this, "Recording is incomplete : "+e.getMessage(), Toast.LENGTH_SHORT).show();
+		}
+		mSessionWriter = null;
+	}
+	
+	// samples of a recorded file, for loadLastGesture
+	private static abstract class Recording {
+		abstract void open(File file) throws IOException;
+		abstract int getCount();
+		abstract boolean isDown(int index);
+		abstract boolean isMove(int index);
+		abstract float getX(int index);
+		abstract float getY(int index);
+		abstract long getTime(int index);
+	}
+	
+	// load the last gesture in the session
+	private void loadSession(File file) {
+		loadLastGesture(file, new Recording() {
+			private GestureTrace mTrace;
+			
+			@Override
+			void open(File file) throws IOException {
+				mTrace = GestureTrace.open(file);
+			}
+			@Override
+			int getCount() {
+				return mTrace.getCount();
+			}
+			@Override
+			boolean isDown(int index) {
+				return mTrace.getAction(index) == GestureTrace.ACTION_DOWN;
+			}
+			@Override
+			boolean isMove(int index) {
+				return mTrace.getAction(index) == GestureTrace.ACTION_MOVE;
+			}
+			@Override
+			float getX(int index) {
+				return mTrace.getX(index);
+			}
+			@Override
+			float getY(int index) {
+				return mTrace.getY(index);
+			}
+			@Override
+			long getTime(int index) {
+				return mTrace.getTime(index);
+			}
+		});
+	}
+	
+	// load the last gesture in the trace
+	private void loadTrace(File file) {
+		loadLastGesture(file, new Recording() {
+			private TraceRecorder mTrace;
+			
+			@Override
+			void open(File file) throws IOException {
+				mTrace = TraceRecorder.read(file);
+			}
+			@Override
+			int getCount() {
+				return mTrace.getCount();
+			}
+			@Override
+			boolean isDown(int index) {
+				return mTrace.getType(index) == TraceRecorder.TYPE_DOWN;
+			}
+			@Override
+			boolean isMove(int index) {
+				return mTrace.getType(index) == TraceRecorder.TYPE_MOVE;
+			}
+			@Override
+			float getX(int index) {
+				return mTrace.getX(index);
+			}
+			@Override
+			float getY(int index) {
+				return mTrace.getY(index);
+			}
+			@Override
+			long getTime(int index) {
+				return mTrace.getTime(index);
+			}
+		});
+	}
+	
+	// show the down and move samples from the last down, same as TouchPaintView captures
+	private void loadLastGesture(File file, Recording recording) {
+		try {
+			recording.open(file);
+		} catch (IOException e) {
+			Toast.makeText(this, "Cannot load "+file+" : "+e.getMessage(), Toast.LENGTH_SHORT).show();
+			return;
+		}
+		final int total = recording.getCount();
+		int down = -1;
+		for (int i=total-1; i>=0; i--) {
+			if (recording.isDown(i)) {
+				down = i;
+				break;
+			}
+		}
+		if (down < 0) {
+			Toast.makeText(this, "No gesture in "+file, Toast.LENGTH_SHORT).show();
+			return;
+		}
+		float[] xy = new float[(total - down) * 2];
+		long[] time = new long[total - down];
+		int count = 0;
+		for (int i=down; i<total; i++) {
+			if (recording.isDown(i) || recording.isMove(i)) {
+				xy[count * 2] = recording.getX(i);
+				xy[count * 2 + 1] = recording.getY(i);
+				time[count] = recording.getTime(i);
+				count++;
+			}
+		}
+		mModeCheckBox.setChecked(false);
+		mTouchPaintView.setTouchData(xy, time, count);
+		mModeCheckBox.setChecked(true);
+	}
+
     private void setAnalyzeMode(boolean isAnalyzing) {
 		mTouchPaintView.setIsAnalyzing(isAnalyzing);
 		if (isAnalyzing) {
-	        mResultList.setAdapter(new ResultAdapter(this, analyze(mTouchPaintView.getTouchData())));
+	        mResultList.setAdapter(mResultAdapter);
 //			mResultList.setVisibility(View.VISIBLE);
 		} else {
 //			mResultList.setVisibility(View.GONE);
@@ -72,39 +311,30 @@ public class GestureAnalyzer extends Activity {
 		}
     }
     
-    private StrokeTracker mTracker;
-    
-    private ResultItem[] analyze(RecentBuffer<PointF> data) {
-    	ResultItem[] results = new ResultItem[data.getSize()];
-    	for (int i=0; i<data.getSize(); i++) {
-    		PointF p = data.getFromOldest(i);
-    		if (i == 0)
-    			mTracker.addTouchDown(p.x, p.y);
-    		else
-	    		mTracker.addTouchMove(p.x, p.y);
-    		int state = mTracker.getState();
-    		float angle = mTracker.getCosineSquareAngle();
-    		results[i] = new ResultItem((angle+1f)/2f, state);
-    	}
-    	return results;
-    }
-    
-    public static class ResultItem {
-    	float fValue; // line graph
-    	int iValue; // state
-    	ResultItem(float fValue, int iValue) {
-    		this.fValue = fValue;
-    		this.iValue = iValue;
-    	}
-    }
-    
-    private static class ResultAdapter extends ArrayAdapter<ResultItem> {
+    // one row per sample, read from the analysis arrays
+    private static class ResultAdapter extends BaseAdapter {
     	
     	private LayoutInflater mInflater;
+    	private StrokeAnalysis mResults;
 
-		public ResultAdapter(Context context, ResultItem[] objects) {
-			super(context, 0, objects);
+		public ResultAdapter(Context context, StrokeAnalysis results) {
 			mInflater = LayoutInflater.from(context);
+			mResults = results;
+		}
+		
+		@Override
+		public int getCount() {
+			return mResults.getCount();
+		}
+		
+		@Override
+		public Object getItem(int position) {
+			return null;
+		}
+		
+		@Override
+		public long getItemId(int position) {
+			return position;
 		}
 		
 		@Override
@@ -115,16 +345,8 @@ public class GestureAnalyzer extends Activity {
 			} else {
 				v = (ResultView)convertView;
 			}
-			v.setResultItem(position, getItem(position-1), getItem(position), getItem(position+1));
+			v.setResult(position, mResults);
 			return v;
 		}
-
-		@Override
-		public ResultItem getItem(int position) {
-			if (position < 0 || position >= getCount())
-				return null;
-			else
-				return super.getItem(position);
-		}
     }
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.easetheworld.zo_ui;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import dev.easetheworld.recentbuffer.ChunkedSampleBuffer;
+
+/**
+ * Captured path at a few levels of detail for drawLines.
+ * Level 0 is the captured samples. The other levels are simplified as samples are captured :
+ * a point is skipped while every point since the last kept one stays within the level tolerance of
+ * one line from the last kept point (the directions that allow it narrow like a sleeve), so the drawn line
+ * is never farther than the tolerance from the real path.
+ * Levels are split in blocks with bounding boxes to skip what is off screen.
+ */
+class PathPyramid {
+
+	// content pixels. the coarsest level whose tolerance is under MAX_ERROR screen pixels is drawn.
+	private static final float[] TOLERANCES = { 0f, 0.125f, 0.25f, 0.5f };
+	private static final float MAX_ERROR = 0.5f;
+
+	private static final int BLOCK_SIZE = 64; // segments
+	private static final int MAX_BATCH = BLOCK_SIZE * 8; // segments in one read
+
+	// simplified levels kept on the heap, the older chunks are spilled next to the captured samples.
+	private static final int HEAP_CHUNKS = 2;
+
+	private static class Level {
+		private final float mTolerance;
+
+		// segment k is from kept point k to k+1
+		private final ChunkedSampleBuffer mPoints;
+		private final boolean mOwnsPoints;
+		private int mKeptCount;
+		private float mLastX;
+		private float mLastY;
+
+		// left, top, right, bottom of each block of segments
+		private float[] mBounds = new float[16];
+
+		// the last point, not kept yet, and the sleeve from the last kept point
+		private boolean mHasPending;
+		private float mPendingX;
+		private float mPendingY;
+		private long mPendingTime;
+		// the sleeve is the wedge from the right edge to the left edge, narrower than half a turn.
+		// edges are vectors, not angles, so a sample costs a few products and a square root.
+		private boolean mHasDirection;
+		private float mRightX;
+		private float mRightY;
+		private float mLeftX;
+		private float mLeftY;
+		private float mMaxDistance;
+
+		// level 0 draws the captured samples, the other levels own their points.
+		Level(float tolerance, ChunkedSampleBuffer points) {
+			mTolerance = tolerance;
+			mPoints = points;
+			mOwnsPoints = tolerance > 0f;
+		}
+
+		void clear() {
+			if (mOwnsPoints)
+				mPoints.clear();
+			mKeptCount = 0;
+			mHasPending = false;
+		}
+
+		void add(float x, float y, long time) {
+			if (mKeptCount == 0 || !mOwnsPoints) {
+				keep(x, y, time);
+			} else if (!extend(x, y, time)) {
+				keep(mPendingX, mPendingY, mPendingTime);
+				extend(x, y, time); // always fits the new sleeve
+			}
+		}
+
+		// true if the line from the last kept point to x, y is still within the tolerance of every point since.
+		private boolean extend(float x, float y, long time) {
+			final float dx = x - mLastX;
+			final float dy = y - mLastY;
+			final float distanceSquare = dx * dx + dy * dy;
+			final float distance = (float)Math.sqrt(distanceSquare);
+			if (distance < mMaxDistance - mTolerance) // going back over the line
+				return false;
+			if (mHasDirection && (cross(mRightX, mRightY, dx, dy) < 0f || cross(dx, dy, mLeftX, mLeftY) < 0f))
+				return false;
+			if (distance > mTolerance) { // points near the last kept point fit any line
+				// lines within the tolerance of x, y are (dx, dy) turned by asin(tolerance / distance) or less.
+				// the edges are (dx, dy) turned both ways, scaled by distance.
+				final float t = mTolerance;
+				final float k = (float)Math.sqrt(distanceSquare - t * t);
+				final float rightX = dx * k + dy * t;
+				final float rightY = dy * k - dx * t;
+				final float leftX = dx * k - dy * t;
+				final float leftY = dy * k + dx * t;
+				if (!mHasDirection || cross(mRightX, mRightY, rightX, rightY) > 0f) {
+					mRightX = rightX;
+					mRightY = rightY;
+				}
+				if (!mHasDirection || cross(leftX, leftY, mLeftX, mLeftY) > 0f) {
+					mLeftX = leftX;
+					mLeftY = leftY;
+				}
+				mHasDirection = true;
+			}
+			mMaxDistance = Math.max(mMaxDistance, distance);
+			mHasPending = true;
+			mPendingX = x;
+			mPendingY = y;
+			mPendingTime = time;
+			return true;
+		}
+
+		private static float cross(float ax, float ay, float bx, float by) {
+			return ax * by - ay * bx;
+		}
+
+		private void keep(float x, float y, long time) {
+			if (mOwnsPoints)
+				mPoints.add(x, y, time);
+			if (mKeptCount > 0) {
+				final int segment = mKeptCount - 1;
+				final int block = segment / BLOCK_SIZE;
+				if (block * 4 + 4 > mBounds.length) {
+					float[] bounds = new float[mBounds.length * 2];
+					System.arraycopy(mBounds, 0, bounds, 0, block * 4);
+					mBounds = bounds;
+				}
+				final int b = block * 4;
+				if (segment % BLOCK_SIZE == 0) {
+					mBounds[b] = Math.min(mLastX, x);
+					mBounds[b + 1] = Math.min(mLastY, y);
+					mBounds[b + 2] = Math.max(mLastX, x);
+					mBounds[b + 3] = Math.max(mLastY, y);
+				} else {
+					mBounds[b] = Math.min(mBounds[b], x);
+					mBounds[b + 1] = Math.min(mBounds[b + 1], y);
+					mBounds[b + 2] = Math.max(mBounds[b + 2], x);
+					mBounds[b + 3] = Math.max(mBounds[b + 3], y);
+				}
+			}
+			mKeptCount++;
+			mLastX = x;
+			mLastY = y;
+			mHasPending = false;
+			mHasDirection = false;
+			mMaxDistance = 0;
+		}
+
+		// visible blocks of segments from, to. adjacent visible blocks are read and drawn together.
+		void draw(Canvas canvas, int from, int to, Paint paint, float[] points) {
+			final float inset = paint.getStrokeWidth() + 1f;
+			int run = -1; // first segment of the visible blocks not drawn yet
+			for (int s = from; s < to; ) {
+				final int b = s / BLOCK_SIZE * 4;
+				final int next = Math.min(to, (s / BLOCK_SIZE + 1) * BLOCK_SIZE);
+				final boolean visible = !canvas.quickReject(mBounds[b] - inset, mBounds[b + 1] - inset,
+						mBounds[b + 2] + inset, mBounds[b + 3] + inset, Canvas.EdgeType.AA);
+				if (visible && run < 0) {
+					run = s;
+				} else if (!visible && run >= 0) {
+					drawSegments(canvas, run, s, paint, points);
+					run = -1;
+				}
+				s = next;
+			}
+			if (run >= 0)
+				drawSegments(canvas, run, to, paint, points);
+		}
+
+		// points are not repeated for drawLines. even segments are drawn from point 0, odd ones from point 1.
+		private void drawSegments(Canvas canvas, int from, int to, Paint paint, float[] points) {
+			for (int s = from; s < to; s += MAX_BATCH) {
+				final int n = Math.min(MAX_BATCH, to - s);
+				mPoints.read(s, n + 1, points, null);
+				canvas.drawLines(points, 0, (n + 1) / 2 * 4, paint);
+				if (n > 1)
+					canvas.drawLines(points, 2, n / 2 * 4, paint);
+			}
+		}
+	}
+
+	private final ChunkedSampleBuffer mData;
+	private final Level[] mLevels;
+	private int mSampleCount;
+	private final float[] mPoints = new float[(MAX_BATCH + 1) * 2];
+
+	/**
+	 * @param data captured samples. call update after adding to it, clear after clearing it.
+	 * @param spillDir where the simplified levels spill, or null to keep them on the heap
+	 */
+	PathPyramid(ChunkedSampleBuffer data, File spillDir) {
+		mData = data;
+		mLevels = new Level[TOLERANCES.length];
+		mLevels[0] = new Level(0f, data);
+		for (int i=1; i<mLevels.length; i++) {
+			mLevels[i] = new Level(TOLERANCES[i], spillDir == null ? new ChunkedSampleBuffer()
+					: new ChunkedSampleBuffer(new File(spillDir, "path_level"+i+".bin"), HEAP_CHUNKS));
+		}
+	}
+
+	void clear() {
+		for (Level level : mLevels)
+			level.clear();
+		mSampleCount = 0;
+	}
+
+	void close() throws IOException {
+		clear();
+		for (int i=1; i<mLevels.length; i++)
+			mLevels[i].mPoints.close();
+	}
+
+	// add the samples captured since the last update
+	void update() {
+		final int size = mData.getSize();
+		for (; mSampleCount < size; mSampleCount++) {
+			final float x = mData.getX(mSampleCount);
+			final float y = mData.getY(mSampleCount);
+			final long time = mData.getTime(mSampleCount);
+			for (Level level : mLevels)
+				level.add(x, y, time);
+		}
+	}
+
+	/**
+	 * @return the coarsest level that looks the same as every sample at this scale
+	 */
+	int getLevel(float scale) {
+		for (int i=mLevels.length-1; i>0; i--) {
+			if (TOLERANCES[i] * scale <= MAX_ERROR)
+				return i;
+		}
+		return 0;
+	}
+
+	/**
+	 * Draw the whole path with one level.
+	 */
+	void draw(Canvas canvas, int level, Paint paint) {
+		Level l = mLevels[level];
+		l.draw(canvas, 0, l.mKeptCount - 1, paint, mPoints);
+		if (l.mHasPending)
+			canvas.drawLine(l.mLastX, l.mLastY, l.mPendingX, l.mPendingY, paint);
+	}
+
+	/**
+	 * Draw every sample from start to end.
+	 */
+	void draw(Canvas canvas, int start, int end, Paint paint) {
+		if (start < end)
+			mLevels[0].draw(canvas, start, end, paint, mPoints);
+	}
+}
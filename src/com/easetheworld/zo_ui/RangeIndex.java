@@ -0,0 +1,141 @@
+package com.easetheworld.zo_ui;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+import dev.easetheworld.recentbuffer.ChunkedSampleBuffer;
+
+/**
+ * Sums and bounding boxes of captured samples for ranges, without walking the range.
+ * Samples are grouped in blocks. Each block keeps the sum of x, y before it, and the bounds of
+ * aligned runs of 1, 2, 4, ... blocks are kept like a tree. A range query walks at most a block of samples
+ * at each end, and the blocks between are a few runs of the tree.
+ */
+class RangeIndex {
+
+	private static final int BLOCK_SHIFT = 6; // 64 samples
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final int LEVELS = 20; // runs of up to 2^19 blocks
+
+	private final ChunkedSampleBuffer mData;
+	private int mCount;
+
+	// sum of x, y of the samples before each block
+	private double[] mPrefixX = new double[64];
+	private double[] mPrefixY = new double[64];
+	private double mSumX;
+	private double mSumY;
+
+	// left, top, right, bottom of each run of 2^level blocks
+	private final float[][] mBounds = new float[LEVELS][];
+
+	RangeIndex(ChunkedSampleBuffer data) {
+		mData = data;
+		for (int level=0; level<LEVELS; level++)
+			mBounds[level] = new float[16];
+	}
+
+	void clear() {
+		mCount = 0;
+		mSumX = 0;
+		mSumY = 0;
+	}
+
+	// add the samples captured since the last update
+	void update() {
+		final int size = mData.getSize();
+		for (; mCount < size; mCount++) {
+			final float x = mData.getX(mCount);
+			final float y = mData.getY(mCount);
+			final int block = mCount >> BLOCK_SHIFT;
+			if ((mCount & BLOCK_MASK) == 0) {
+				if (block == mPrefixX.length) {
+					double[] prefix = new double[block * 2];
+					System.arraycopy(mPrefixX, 0, prefix, 0, block);
+					mPrefixX = prefix;
+					prefix = new double[block * 2];
+					System.arraycopy(mPrefixY, 0, prefix, 0, block);
+					mPrefixY = prefix;
+				}
+				mPrefixX[block] = mSumX;
+				mPrefixY[block] = mSumY;
+			}
+			mSumX += x;
+			mSumY += y;
+
+			for (int level=0; level<LEVELS; level++) {
+				final int run = block >> level;
+				float[] bounds = mBounds[level];
+				if (run * 4 + 4 > bounds.length) {
+					bounds = new float[bounds.length * 2];
+					System.arraycopy(mBounds[level], 0, bounds, 0, run * 4);
+					mBounds[level] = bounds;
+				}
+				final int b = run * 4;
+				if ((mCount & ((BLOCK_SIZE << level) - 1)) == 0) { // first sample of the run
+					bounds[b] = bounds[b + 2] = x;
+					bounds[b + 1] = bounds[b + 3] = y;
+				} else {
+					if (x < bounds[b]) bounds[b] = x;
+					if (y < bounds[b + 1]) bounds[b + 1] = y;
+					if (x > bounds[b + 2]) bounds[b + 2] = x;
+					if (y > bounds[b + 3]) bounds[b + 3] = y;
+				}
+			}
+		}
+	}
+
+	// sum of samples before index. axis 0 is x, 1 is y.
+	private double sumBefore(int index, int axis) {
+		if (index == mCount)
+			return axis == 0 ? mSumX : mSumY;
+		double sum = axis == 0 ? mPrefixX[index >> BLOCK_SHIFT] : mPrefixY[index >> BLOCK_SHIFT];
+		for (int i = index & ~BLOCK_MASK; i < index; i++)
+			sum += axis == 0 ? mData.getX(i) : mData.getY(i);
+		return sum;
+	}
+
+	/**
+	 * Mean of samples from start to end, inclusive.
+	 */
+	void getCentroid(int start, int end, PointF out) {
+		final int n = end - start + 1;
+		out.x = (float)((sumBefore(end + 1, 0) - sumBefore(start, 0)) / n);
+		out.y = (float)((sumBefore(end + 1, 1) - sumBefore(start, 1)) / n);
+	}
+
+	/**
+	 * Bounding box of samples from start to end, inclusive.
+	 */
+	void getBounds(int start, int end, RectF out) {
+		out.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		final int last = end + 1;
+		int i = start;
+		// samples before the first whole block
+		for (; i < last && (i & BLOCK_MASK) != 0; i++)
+			union(out, mData.getX(i), mData.getY(i));
+		// whole blocks, in the biggest aligned runs
+		int block = i >> BLOCK_SHIFT;
+		final int lastBlock = last >> BLOCK_SHIFT;
+		while (block < lastBlock) {
+			int level = 0;
+			while (level + 1 < LEVELS && (block & ((1 << (level + 1)) - 1)) == 0 && block + (1 << (level + 1)) <= lastBlock)
+				level++;
+			final float[] bounds = mBounds[level];
+			final int b = (block >> level) * 4;
+			union(out, bounds[b], bounds[b + 1]);
+			union(out, bounds[b + 2], bounds[b + 3]);
+			block += 1 << level;
+		}
+		// samples after the last whole block
+		for (i = Math.max(i, lastBlock << BLOCK_SHIFT); i < last; i++)
+			union(out, mData.getX(i), mData.getY(i));
+	}
+
+	private static void union(RectF r, float x, float y) {
+		if (x < r.left) r.left = x;
+		if (y < r.top) r.top = y;
+		if (x > r.right) r.right = x;
+		if (y > r.bottom) r.bottom = y;
+	}
+}
@@ -7,15 +7,11 @@ import android.graphics.Paint;
 import android.util.AttributeSet;
 import android.view.View;
 
-import com.easetheworld.zo_ui.GestureAnalyzer.ResultItem;
-
     
 public class ResultView extends View {
 	private static final int[] COLORS = {Color.TRANSPARENT, Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW};
 	
-	private ResultItem mCurItem;
-	private ResultItem mPrevItem;
-	private ResultItem mNextItem;
+	private StrokeAnalysis mResults;
 	private int mPosition;
 	
 	private Paint mLinePaint;
@@ -47,11 +43,9 @@ public class ResultView extends View {
         mTextPaint.setTextSize(24);
 	}
 	
-	public void setResultItem(int position, ResultItem prev, ResultItem cur, ResultItem next) {
+	void setResult(int position, StrokeAnalysis results) {
 		mPosition = position;
-		mPrevItem = prev;
-		mCurItem = cur;
-		mNextItem = next;
+		mResults = results;
 		invalidate();
 	}
 	
@@ -63,21 +57,21 @@ public class ResultView extends View {
 	@Override
 	protected void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
-		float curX = getXFromValue(mCurItem.fValue);
+		float curX = getXFromValue(mResults.getValue(mPosition));
 		float curY = getHeight() / 2;
 		
 		// state
-		mStatePaint.setColor(COLORS[mCurItem.iValue]);
+		mStatePaint.setColor(COLORS[mResults.getState(mPosition)]);
 		canvas.drawRect(0, PADDING, PADDING, getHeight() - PADDING, mStatePaint);
 		
 		// index
 		canvas.drawText(Integer.toString(mPosition), getWidth() / 2, getHeight() / 2, mTextPaint);
 		
 		// line
-		if (mPrevItem != null)
-			canvas.drawLine(getXFromValue(mPrevItem.fValue), curY - getHeight(), curX, curY, mLinePaint);
-		if (mNextItem != null)
-			canvas.drawLine(curX, curY, getXFromValue(mNextItem.fValue), curY + getHeight(), mLinePaint);
+		if (mPosition > 0)
+			canvas.drawLine(getXFromValue(mResults.getValue(mPosition - 1)), curY - getHeight(), curX, curY, mLinePaint);
+		if (mPosition + 1 < mResults.getCount())
+			canvas.drawLine(curX, curY, getXFromValue(mResults.getValue(mPosition + 1)), curY + getHeight(), mLinePaint);
 		
 		// point
 		canvas.drawCircle(curX, curY, PADDING/2, mPointPaint);
@@ -0,0 +1,161 @@
+package com.easetheworld.zo_ui;
+
+import android.graphics.RectF;
+import android.util.SparseArray;
+import dev.easetheworld.recentbuffer.ChunkedSampleBuffer;
+
+/**
+ * Captured samples by grid cell, for nearest sample and samples in rect.
+ * A stroke stays in a cell for many samples, so each cell keeps runs of consecutive sample indices
+ * instead of every index. The grid costs about one run per cell crossed by the path.
+ */
+class SampleGrid {
+
+	private static final float CELL_SIZE = 32f; // content pixels
+
+	private static class Cell {
+		int[] mRuns = new int[4]; // first, last, first, last, ...
+		int mRunCount;
+	}
+
+	private final ChunkedSampleBuffer mData;
+	private int mCount;
+	private final SparseArray<Cell> mCells = new SparseArray<Cell>();
+	private Cell mLastCell;
+
+	// cells that have samples
+	private int mMinCellX;
+	private int mMinCellY;
+	private int mMaxCellX;
+	private int mMaxCellY;
+
+	SampleGrid(ChunkedSampleBuffer data) {
+		mData = data;
+	}
+
+	void clear() {
+		mCells.clear();
+		mLastCell = null;
+		mCount = 0;
+	}
+
+	// add the samples captured since the last update
+	void update() {
+		final int size = mData.getSize();
+		for (; mCount < size; mCount++) {
+			final int cx = cell(mData.getX(mCount));
+			final int cy = cell(mData.getY(mCount));
+			final int key = key(cx, cy);
+			Cell c = mCells.get(key);
+			if (c == null) {
+				c = new Cell();
+				mCells.put(key, c);
+				if (mCells.size() == 1) {
+					mMinCellX = mMaxCellX = cx;
+					mMinCellY = mMaxCellY = cy;
+				} else {
+					mMinCellX = Math.min(mMinCellX, cx);
+					mMinCellY = Math.min(mMinCellY, cy);
+					mMaxCellX = Math.max(mMaxCellX, cx);
+					mMaxCellY = Math.max(mMaxCellY, cy);
+				}
+			}
+			if (c == mLastCell) {
+				c.mRuns[c.mRunCount * 2 - 1] = mCount; // still in the run
+			} else {
+				if (c.mRunCount * 2 == c.mRuns.length) {
+					int[] runs = new int[c.mRuns.length * 2];
+					System.arraycopy(c.mRuns, 0, runs, 0, c.mRuns.length);
+					c.mRuns = runs;
+				}
+				c.mRuns[c.mRunCount * 2] = mCount;
+				c.mRuns[c.mRunCount * 2 + 1] = mCount;
+				c.mRunCount++;
+				mLastCell = c;
+			}
+		}
+	}
+
+	private static int cell(float v) {
+		return (int)Math.floor(v / CELL_SIZE);
+	}
+
+	private static int key(int cx, int cy) {
+		return (cx << 16) ^ (cy & 0xffff);
+	}
+
+	/**
+	 * @return index of the sample nearest to x, y within maxDistance, or -1
+	 */
+	int findNearest(float x, float y, float maxDistance) {
+		if (mCells.size() == 0)
+			return -1;
+		final int cx = cell(x);
+		final int cy = cell(y);
+		int nearest = -1;
+		float nearestSquare = maxDistance * maxDistance;
+		// rings of cells around x, y. samples out of ring r are farther than r cells.
+		final int maxRing = Math.max(Math.max(cx - mMinCellX, mMaxCellX - cx), Math.max(cy - mMinCellY, mMaxCellY - cy));
+		final int maxDistanceRing = (int)Math.ceil(maxDistance / CELL_SIZE);
+		for (int r = 0; r <= maxRing && r <= maxDistanceRing; r++) {
+			for (int i = -r; i <= r; i++) {
+				for (int j = -r; j <= r; j++) {
+					if (i != -r && i != r && j != -r && j != r)
+						continue; // inside the ring, done
+					Cell c = mCells.get(key(cx + i, cy + j));
+					if (c == null)
+						continue;
+					for (int k = 0; k < c.mRunCount; k++) {
+						final int last = c.mRuns[k * 2 + 1];
+						for (int s = c.mRuns[k * 2]; s <= last; s++) {
+							final float dx = mData.getX(s) - x;
+							final float dy = mData.getY(s) - y;
+							final float d = dx * dx + dy * dy;
+							if (d <= nearestSquare) {
+								nearestSquare = d;
+								nearest = s;
+							}
+						}
+					}
+				}
+			}
+			final float ringDistance = r * CELL_SIZE;
+			if (nearest >= 0 && nearestSquare <= ringDistance * ringDistance)
+				break;
+		}
+		return nearest;
+	}
+
+	/**
+	 * Fill out with the samples in rect, grouped by cell.
+	 *
+	 * @return number of samples in rect, which may be more than out can hold
+	 */
+	int findInRect(RectF rect, int[] out) {
+		if (mCells.size() == 0)
+			return 0;
+		int count = 0;
+		final int left = Math.max(cell(rect.left), mMinCellX);
+		final int top = Math.max(cell(rect.top), mMinCellY);
+		final int right = Math.min(cell(rect.right), mMaxCellX);
+		final int bottom = Math.min(cell(rect.bottom), mMaxCellY);
+		for (int i = left; i <= right; i++) {
+			for (int j = top; j <= bottom; j++) {
+				Cell c = mCells.get(key(i, j));
+				if (c == null)
+					continue;
+				for (int k = 0; k < c.mRunCount; k++) {
+					final int last = c.mRuns[k * 2 + 1];
+					for (int s = c.mRuns[k * 2]; s <= last; s++) {
+						if (rect.contains(mData.getX(s), mData.getY(s))) {
+							if (count < out.length)
+								out[count] = s;
+							count++;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
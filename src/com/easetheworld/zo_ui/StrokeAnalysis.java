@@ -0,0 +1,82 @@
+package com.easetheworld.zo_ui;
+
+import dev.easetheworld.recentbuffer.ChunkedSampleBuffer;
+import dev.easetheworld.ui.zo.StrokeTracker;
+
+/**
+ * StrokeTracker output for every captured sample, in chunks of primitive arrays.
+ * Samples are analyzed as they are captured, so nothing is left to do when the results are shown.
+ * Chunks are kept after clear for the next gesture.
+ */
+class StrokeAnalysis {
+
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final ChunkedSampleBuffer mData;
+	private final StrokeTracker mTracker;
+	private final float[] mReadXY = new float[CHUNK_SIZE * 2];
+	private final long[] mReadTime = new long[CHUNK_SIZE]; // for the velocity and the prediction of the tracker
+
+	private float[][] mValues = new float[4][]; // (cosine square angle + 1) / 2
+	private byte[][] mStates = new byte[4][];
+	private int mCount;
+
+	StrokeAnalysis(ChunkedSampleBuffer data, float touchSlop) {
+		mData = data;
+		mTracker = new StrokeTracker(touchSlop);
+	}
+
+	void clear() {
+		mCount = 0;
+	}
+
+	// analyze the samples captured since the last update
+	void update() {
+		final int size = mData.getSize();
+		while (mCount < size) {
+			final int chunk = mCount >> CHUNK_SHIFT;
+			if (chunk == mValues.length) {
+				float[][] values = new float[chunk * 2][];
+				System.arraycopy(mValues, 0, values, 0, chunk);
+				mValues = values;
+				byte[][] states = new byte[chunk * 2][];
+				System.arraycopy(mStates, 0, states, 0, chunk);
+				mStates = states;
+			}
+			if (mValues[chunk] == null) {
+				mValues[chunk] = new float[CHUNK_SIZE];
+				mStates[chunk] = new byte[CHUNK_SIZE];
+			}
+			final float[] values = mValues[chunk];
+			final byte[] states = mStates[chunk];
+			final int from = mCount & CHUNK_MASK;
+			final int count = Math.min(size - mCount, CHUNK_SIZE - from);
+			mData.read(mCount, count, mReadXY, mReadTime);
+			for (int k=0; k<count; k++) {
+				float x = mReadXY[k * 2];
+				float y = mReadXY[k * 2 + 1];
+				if (mCount + k == 0)
+					mTracker.addTouchDown(x, y, mReadTime[k]);
+				else
+					mTracker.addTouchMove(x, y, mReadTime[k]);
+				values[from + k] = (mTracker.getCosineSquareAngle() + 1f) / 2f;
+				states[from + k] = (byte)mTracker.getState();
+			}
+			mCount += count;
+		}
+	}
+
+	int getCount() {
+		return mCount;
+	}
+
+	float getValue(int index) {
+		return mValues[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+
+	int getState(int index) {
+		return mStates[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+}
@@ -1,40 +1,75 @@
 package com.easetheworld.zo_ui;
 
+import java.io.File;
+import java.io.IOException;
+
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.PointF;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
-import dev.easetheworld.recentbuffer.RecentBuffer;
+import android.view.ViewConfiguration;
+import dev.easetheworld.recentbuffer.ChunkedSampleBuffer;
+import dev.easetheworld.ui.zo.GestureTrace;
+import dev.easetheworld.ui.zo.GestureTraceWriter;
 
 public class TouchPaintView extends View {
 	
 	private boolean mIsAnalyzing;
 	
-	private static final int MAX_COUNT = 500;
+	// captured chunks kept on the heap, the older ones are spilled to the cache dir.
+	private static final int HEAP_CHUNKS = 8;
     
-    private Path    mPath;
     private Paint   mLinePaint;
+    private Paint   mAnalyzeLinePaint;
     private Paint   mHighlightLinePaint;
     private Paint   mHighlightPointPaint;
     private GestureDetector mGestureDetector;
     private ScaleGestureDetector mScaleGestureDetector;
     
-	private RecentBuffer<PointF> mData = new RecentBuffer<PointF>(MAX_COUNT, PointF.class);
+	// every sample of the gesture, however long
+	private final ChunkedSampleBuffer mData;
+	
+	// mData at the level of detail for the scale
+	private final PathPyramid mPyramid;
+	
+	// centroid and bounds of mData ranges
+	private final RangeIndex mRangeIndex;
+	private final PointF mRangeCentroid = new PointF();
+	private final RectF mRangeBounds = new RectF();
+	
+	// mData by position, for taps
+	private final SampleGrid mSampleGrid;
+	private final float mTapRadius; // view pixels
+	private OnPointTapListener mOnPointTapListener;
+	private OnTouchDataListener mOnTouchDataListener;
+	
+	// the whole path drawn once while capturing. new segments are added to it, it is redrawn only when the data is replaced.
+	private Bitmap mPathCache;
+	private Canvas mPathCacheCanvas;
+	private int mCachedSamples; // samples drawn in mPathCache, -1 to redraw
+	
+	private GestureTraceWriter mTraceWriter;
 
 	public TouchPaintView(Context context, AttributeSet attrs) {
 		super(context, attrs);
 		
+		File spillDir = context.getCacheDir();
+		mData = new ChunkedSampleBuffer(new File(spillDir, "touch_paint.bin"), HEAP_CHUNKS);
+		mPyramid = new PathPyramid(mData, spillDir);
+		mRangeIndex = new RangeIndex(mData);
+		mSampleGrid = new SampleGrid(mData);
+		mTapRadius = ViewConfiguration.get(context).getScaledTouchSlop();
+		
 		setIsAnalyzing(false);
 		
-        mPath = new Path();
-        
         mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         mLinePaint.setColor(Color.RED);
         mLinePaint.setStyle(Paint.Style.STROKE);
@@ -42,6 +77,9 @@ public class TouchPaintView extends View {
         mLinePaint.setStrokeCap(Paint.Cap.ROUND);
         mLinePaint.setStrokeWidth(1);
         
+        mAnalyzeLinePaint = new Paint(mLinePaint);
+        mAnalyzeLinePaint.setAlpha(0x20);
+        
         mHighlightLinePaint = new Paint(mLinePaint);
         
         mHighlightPointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -79,6 +117,9 @@ public class TouchPaintView extends View {
 	private static final float MIN_SCALE_FACTOR = 1.0f;
 	private static final float MAX_SCALE_FACTOR = 10.0f;
 	
+	// part of the view filled by fitPoints
+	private static final float FIT_RATIO = 0.9f;
+	
 	private float getAdjustedScale(float s) {
 		s = Math.max(s, MIN_SCALE_FACTOR);
 		s = Math.min(s, MAX_SCALE_FACTOR);
@@ -86,8 +127,7 @@ public class TouchPaintView extends View {
 	}
 	
 	public boolean movePointToCenter(int index) {
-		PointF p = mData.getFromOldest(index);
-		return move(p.x, p.y, getWidth() / 2, getHeight() / 2);
+		return move(mData.getX(index), mData.getY(index), getWidth() / 2, getHeight() / 2);
 	}
 	
 	// x, y is original axis base. (from touch event)
@@ -142,10 +182,55 @@ public class TouchPaintView extends View {
 
 		@Override
 		public boolean onSingleTapUp(MotionEvent e) {
-			return super.onSingleTapUp(e);
+			if (mOnPointTapListener == null)
+				return false;
+			int index = findNearestPoint(e.getX(), e.getY());
+			if (index >= 0)
+				mOnPointTapListener.onPointTap(index);
+			return true;
 		}
 	};
 	
+	/**
+	 * Called when a tap in analyzing mode is near a captured point.
+	 */
+	public interface OnPointTapListener {
+		void onPointTap(int index);
+	}
+	
+	public void setOnPointTapListener(OnPointTapListener l) {
+		mOnPointTapListener = l;
+	}
+	
+	/**
+	 * Called as points are captured, to follow getTouchData without reading it again.
+	 */
+	public interface OnTouchDataListener {
+		void onTouchDataCleared();
+		void onTouchDataAdded();
+	}
+	
+	public void setOnTouchDataListener(OnTouchDataListener l) {
+		mOnTouchDataListener = l;
+	}
+	
+	/**
+	 * @param x, y view position
+	 * @return index of the captured point nearest to the view position within the touch slop, or -1
+	 */
+	public int findNearestPoint(float x, float y) {
+		return mSampleGrid.findNearest((x - mTranslateX) / mScaleFactor, (y - mTranslateY) / mScaleFactor, mTapRadius / mScaleFactor);
+	}
+	
+	/**
+	 * @param rect in original axis (from touch event)
+	 * @param out filled with the indices of captured points in rect, as many as fit
+	 * @return number of captured points in rect
+	 */
+	public int findPointsInRect(RectF rect, int[] out) {
+		return mSampleGrid.findInRect(rect, out);
+	}
+	
 	private ScaleGestureDetector.OnScaleGestureListener mScaleGestureListener = new ScaleGestureDetector.SimpleOnScaleGestureListener() {
 		
 		private final float SCALE_FACTOR_SENSITIVITY1 = 1f - 0.01f;
@@ -170,37 +255,76 @@ public class TouchPaintView extends View {
 				mTranslateX = 0f;
 				mTranslateY = 0f;
 				mScaleFactor = 1f;
-				mLinePaint.setAlpha(0x20);
 			} else {
 		        clearTouchData();
-		        mPath.reset();
-				mLinePaint.setAlpha(0xff);
 			}
 			invalidate();
 		}
 	}
     
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    	super.onSizeChanged(w, h, oldw, oldh);
+    	if (mPathCache != null) {
+    		mPathCache.recycle();
+    		mPathCache = null;
+    		mPathCacheCanvas = null;
+    	}
+    	if (w > 0 && h > 0) {
+    		mPathCache = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+    		mPathCacheCanvas = new Canvas(mPathCache);
+    	}
+    	mCachedSamples = -1;
+    }
+    
+    // draw the samples not in the cache yet, or all of them after the data is replaced.
+    private void updatePathCache() {
+    	if (mPathCacheCanvas == null)
+    		return;
+    	final int count = mData.getSize();
+    	if (mCachedSamples < 0 || mCachedSamples > count) {
+    		mPathCache.eraseColor(Color.TRANSPARENT);
+    		mCachedSamples = 0;
+    	}
+    	if (mCachedSamples < count)
+    		mPyramid.draw(mPathCacheCanvas, Math.max(0, mCachedSamples - 1), count - 1, mLinePaint);
+    	mCachedSamples = count;
+    }
+    
     @Override
     protected void onDraw(Canvas canvas) {
     	if (mIsAnalyzing) {
 			canvas.translate(mTranslateX, mTranslateY);
     		canvas.scale(mScaleFactor, mScaleFactor);
-	        canvas.drawPath(mPath, mLinePaint);
-    		canvas.drawRect(0, 0, getWidth(), getHeight(), mLinePaint);
-			for (int i=mStartPoint; i<mEndPoint; i++) {
-				PointF p1 = mData.getFromOldest(i);
-				PointF p2 = mData.getFromOldest(i+1);
-				canvas.drawLine(p1.x, p1.y, p2.x, p2.y, mHighlightLinePaint);
-			}
+    		// simplified for the scale, so drawn lines are about the pixels on screen whatever the sample count.
+    		mPyramid.draw(canvas, mPyramid.getLevel(mScaleFactor), mAnalyzeLinePaint);
+    		canvas.drawRect(0, 0, getWidth(), getHeight(), mAnalyzeLinePaint);
+    		if (mEndPoint > mStartPoint)
+    			mPyramid.draw(canvas, mStartPoint, mEndPoint, mHighlightLinePaint);
     		if (mHighlightPoint >= 0) {
-				PointF p = mData.getFromOldest(mHighlightPoint);
+    			float x = mData.getX(mHighlightPoint);
+    			float y = mData.getY(mHighlightPoint);
 		        mHighlightPointPaint.setAlpha(0x80);
-				canvas.drawCircle(p.x, p.y, 2, mHighlightPointPaint);
+				canvas.drawCircle(x, y, 2, mHighlightPointPaint);
 		        mHighlightPointPaint.setAlpha(0xff);
-				canvas.drawCircle(p.x, p.y, 1, mHighlightPointPaint);
+				canvas.drawCircle(x, y, 1, mHighlightPointPaint);
     		}
-    	} else {
-	        canvas.drawPath(mPath, mLinePaint);
+    	} else if (mPathCache != null) {
+    		updatePathCache();
+    		canvas.drawBitmap(mPathCache, 0, 0, null);
+    	}
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+    	super.onDetachedFromWindow();
+    	// cleared like a new gesture first, so the indexes and the listener drop their sample indices too
+    	clearTouchData();
+    	try {
+    		mData.close();
+    		mPyramid.close();
+    	} catch (IOException e) {
+    		// nothing to keep
     	}
     }
     
@@ -227,7 +351,7 @@ public class TouchPaintView extends View {
     private void touch_up(float x, float y) {
     }
     
-    private int mHighlightPoint;
+    private int mHighlightPoint = -1;
     
     public void highlightPoint(int pos) {
     	mHighlightPoint = pos;
@@ -243,20 +367,24 @@ public class TouchPaintView extends View {
     		mStartPoint = start;
     		mEndPoint = end;
     		mHighlightPoint = -1;
-    		float sumX = 0f;
-    		float sumY = 0f;
-    		for (int i=start; i<=end; i++) {
-    			PointF p = mData.getFromOldest(i);
-    			sumX += p.x;
-    			sumY += p.y;
-    		}
-    		sumX /= (end - start + 1);
-    		sumY /= (end - start + 1);
-    		move(sumX, sumY, getWidth() / 2, getHeight() / 2);
+    		mRangeIndex.getCentroid(start, end, mRangeCentroid);
+    		move(mRangeCentroid.x, mRangeCentroid.y, getWidth() / 2, getHeight() / 2);
 	    	invalidate();
     	}
     }
     
+    /**
+     * Zoom so the samples from start to end fill the view, and center them.
+     */
+    public void fitPoints(int start, int end) {
+    	if (!mIsAnalyzing) return;
+    	mRangeIndex.getBounds(start, end, mRangeBounds);
+    	float s = Math.min(getWidth() / Math.max(mRangeBounds.width(), 1f), getHeight() / Math.max(mRangeBounds.height(), 1f));
+    	mScaleFactor = getAdjustedScale(s * FIT_RATIO);
+    	move(mRangeBounds.centerX(), mRangeBounds.centerY(), getWidth() / 2, getHeight() / 2);
+    	invalidate();
+    }
+    
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         float x = event.getX();
@@ -268,40 +396,90 @@ public class TouchPaintView extends View {
     	} else {
 	        switch (event.getActionMasked()) {
 	            case MotionEvent.ACTION_DOWN:
-	                mPath.reset();
-	                mPath.moveTo(x, y);
-
 	                clearTouchData();
-	                addTouchData(x, y);
+	                addTouchData(x, y, event.getEventTime());
+	                writeTrace(GestureTrace.ACTION_DOWN, event.getEventTime(), x, y);
+	                notifyTouchDataAdded();
 	                break;
 	            case MotionEvent.ACTION_MOVE:
 	                for (int i = 0; i < event.getHistorySize(); i++) {
 	                	float historicalX = event.getHistoricalX(i);
 	                	float historicalY = event.getHistoricalY(i);
-	                	mPath.lineTo(historicalX, historicalY);
-		            	addTouchData(historicalX, historicalY);
+		            	addTouchData(historicalX, historicalY, event.getHistoricalEventTime(i));
+		            	writeTrace(GestureTrace.ACTION_MOVE | GestureTrace.FLAG_HISTORICAL, event.getHistoricalEventTime(i), historicalX, historicalY);
 	                }
-	            	mPath.lineTo(x, y);
-	            	addTouchData(x, y);
+	            	addTouchData(x, y, event.getEventTime());
+	            	writeTrace(GestureTrace.ACTION_MOVE, event.getEventTime(), x, y);
+	            	notifyTouchDataAdded();
         
 	                invalidate();
 	                break;
 	            case MotionEvent.ACTION_UP:
+	            case MotionEvent.ACTION_CANCEL:
+	            	writeTrace(event.getActionMasked(), event.getEventTime(), x, y);
 	                break;
 	        }
 	        return true;
     	}
     }
     
+    /**
+     * Write every sample captured from now on. null to stop.
+     * The caller owns the writer and closes it.
+     */
+    public void setGestureTraceWriter(GestureTraceWriter writer) {
+    	mTraceWriter = writer;
+    }
+    
+    private void writeTrace(int action, long time, float x, float y) {
+    	if (mTraceWriter == null)
+    		return;
+    	try {
+    		mTraceWriter.add(action, time, x, y);
+    	} catch (IOException e) {
+    		mTraceWriter = null; // stop recording, keep painting
+    	}
+    }
+    
     private void clearTouchData() {
     	mData.clear();
+    	mPyramid.clear();
+    	mRangeIndex.clear();
+    	mSampleGrid.clear();
+    	mHighlightPoint = -1;
+    	mStartPoint = mEndPoint = 0;
+    	if (mOnTouchDataListener != null)
+    		mOnTouchDataListener.onTouchDataCleared();
+    	mCachedSamples = -1;
+    }
+    
+    private void addTouchData(float x, float y, long time) {
+    	mData.add(x, y, time);
+    	mPyramid.update();
+    	mRangeIndex.update();
+    	mSampleGrid.update();
     }
     
-    private void addTouchData(float x, float y) {
-    	mData.obtain().set(x, y);
+    private void notifyTouchDataAdded() {
+    	if (mOnTouchDataListener != null)
+    		mOnTouchDataListener.onTouchDataAdded();
+    }
+    
+    /**
+     * Replace the captured gesture with the given samples.
+     * @param xy x0, y0, x1, y1, ...
+     * @param time time of each sample, or null
+     * @param count number of samples
+     */
+    public void setTouchData(float[] xy, long[] time, int count) {
+    	clearTouchData();
+    	for (int i=0; i<count; i++)
+    		addTouchData(xy[i * 2], xy[i * 2 + 1], time == null ? 0 : time[i]);
+    	notifyTouchDataAdded();
+    	invalidate();
     }
     
-    public RecentBuffer<PointF> getTouchData() {
+    public ChunkedSampleBuffer getTouchData() {
     	return mData;
     }
 }
\ No newline at end of file
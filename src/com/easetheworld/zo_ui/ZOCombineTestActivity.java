@@ -1,11 +1,17 @@
 package com.easetheworld.zo_ui;
 
+import java.io.File;
+import java.io.IOException;
+
 import android.app.Activity;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
+import dev.easetheworld.ui.zo.TraceRecorder;
 import dev.easetheworld.ui.zo.ZOTouchListener;
 
 public class ZOCombineTestActivity extends Activity {
@@ -15,6 +21,9 @@ public class ZOCombineTestActivity extends Activity {
 	
 	private int mValue1;
 	private int mValue2;
+	
+	private static final int MENU_DUMP_TRACE = 1;
+	private TraceRecorder mTrace;
     
 	@Override
     public void onCreate(Bundle savedInstanceState) {
@@ -32,6 +41,9 @@ public class ZOCombineTestActivity extends Activity {
         TextView btn2 = (TextView)findViewById(android.R.id.button2);
         btn2.setText("Z O");
         
+        mTrace = new TraceRecorder(4096);
+        mTrace.setEnabled(true);
+        
         ZOTouchListener listener = new ZOTouchListener(this, new ZOTouchListener.Dispatcher() {
         	private int mMode;
 			@Override
@@ -77,12 +89,33 @@ public class ZOCombineTestActivity extends Activity {
 			public void onUp(View v) {
 		        v.setBackgroundColor(Color.GRAY);
 			}
-		});
+		}).setFrameCoalescing(true).setTraceRecorder(mTrace).setMultiPointer(true);
         
-        btn1.setOnTouchListener(listener);
-        btn2.setOnTouchListener(listener);
+        listener.attachTo(btn1).attachTo(btn2);
     }
 	
+    @Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+    	menu.add(0, MENU_DUMP_TRACE, 0, "Dump trace");
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		switch(item.getItemId()) {
+		case MENU_DUMP_TRACE:
+			File file = getFileStreamPath(GestureAnalyzer.TRACE_FILE_NAME);
+			try {
+				mTrace.writeTo(file);
+				Toast.makeText(this, mTrace.getCount()+" records to "+file, Toast.LENGTH_SHORT).show();
+			} catch (IOException e) {
+				Toast.makeText(this, "Cannot dump : "+e.getMessage(), Toast.LENGTH_SHORT).show();
+			}
+			return true;
+		}
+		return super.onOptionsItemSelected(item);
+	}
+	
 	private static int rotatedAdd(int a, int b, int min, int max) {
 		a += b;
 		if (a < min)
@@ -0,0 +1,120 @@
+package com.easetheworld.zo_ui;
+
+import android.app.ListActivity;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+import dev.easetheworld.ui.zo.ZOTouchHub;
+import dev.easetheworld.ui.zo.ZOTouchListener;
+
+public class ZOListTestActivity extends ListActivity {
+
+	private static final int ROW_COUNT = 500;
+	private static final int VALUE_MIN = 0;
+	private static final int VALUE_MAX = 999;
+
+	private final int[] mValues = new int[ROW_COUNT];
+
+	private ZOTouchHub mHub;
+
+	@Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        mHub = new ZOTouchHub(this);
+        mHub.getTouchListener().setFrameCoalescing(true);
+
+        setListAdapter(new RowAdapter());
+    }
+
+	// one dispatcher for all rows. the row position is the tag of the view.
+	private final ZOTouchListener.Dispatcher mDispatcher = new ZOTouchListener.Dispatcher() {
+		@Override
+		public void onMove(int mode, View v, int value) {
+			int position = (Integer)v.getTag();
+			mValues[position] = rotatedAdd(mValues[position], value, VALUE_MIN, VALUE_MAX);
+			((TextView)v).setText(String.valueOf(mValues[position]));
+			if (mode == ZOTouchListener.MODE_Z)
+				v.setBackgroundColor(0xffffcccc);
+			else
+				v.setBackgroundColor(0xffccccff);
+		}
+
+		@Override
+		public void onClick(View v) {
+			Toast.makeText(v.getContext(), "Row "+v.getTag()+" Clicked.", Toast.LENGTH_SHORT).show();
+		}
+
+		@Override
+		public void onDown(View v) {
+	        v.setBackgroundColor(Color.DKGRAY);
+		}
+
+		@Override
+		public void onUp(View v) {
+	        v.setBackgroundColor(Color.GRAY);
+		}
+	};
+
+	private class RowAdapter extends BaseAdapter {
+
+		@Override
+		public int getCount() {
+			return ROW_COUNT;
+		}
+
+		@Override
+		public Object getItem(int position) {
+			return mValues[position];
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return position;
+		}
+
+		// label to scroll the list, value to change it with ZO
+		@Override
+		public View getView(int position, View convertView, ViewGroup parent) {
+			LinearLayout row = (LinearLayout)convertView;
+			if (row == null) {
+				final float density = getResources().getDisplayMetrics().density;
+				row = new LinearLayout(ZOListTestActivity.this);
+				row.setLayoutParams(new AbsListView.LayoutParams(AbsListView.LayoutParams.MATCH_PARENT, (int)(64 * density)));
+				TextView label = new TextView(ZOListTestActivity.this);
+				label.setGravity(Gravity.CENTER_VERTICAL);
+				label.setTextSize(18);
+				row.addView(label, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.MATCH_PARENT, 1f));
+				TextView value = new TextView(ZOListTestActivity.this);
+				value.setGravity(Gravity.CENTER);
+				value.setTextSize(24);
+		        value.setBackgroundColor(Color.GRAY);
+				LinearLayout.LayoutParams params = new LinearLayout.LayoutParams((int)(120 * density), LinearLayout.LayoutParams.MATCH_PARENT);
+				params.setMargins(0, (int)(4 * density), (int)(10 * density), (int)(4 * density));
+				row.addView(value, params);
+				mHub.attach(value, mDispatcher); // once per row view, kept when recycled
+			}
+			TextView value = (TextView)row.getChildAt(1);
+			value.setTag(position);
+			value.setText(String.valueOf(mValues[position]));
+			((TextView)row.getChildAt(0)).setText("Row "+position);
+			return row;
+		}
+	}
+
+	private static int rotatedAdd(int a, int b, int min, int max) {
+		a += b;
+		if (a < min)
+			a += (max - min + 1);
+		else if (a > max)
+			a -= (max - min + 1);
+		return a;
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Dispatcher wrapper which accumulates mode O values and delivers them at most once per frame.
+ * Each view has its own pending value, so pointers moving on different views are coalesced separately.
+ * Mode Z values are delivered immediately after the pending mode O value of their view, so their order is kept.
+ * onDown, onUp and onClick flush every pending value first.
+ *
+ * Must be used in the UI thread.
+ */
+class FrameCoalescingDispatcher implements ZOTouchListener.Dispatcher, Runnable {
+
+	// Choreographer is not available in this api level, so use the nominal 60fps frame.
+	private static final long FRAME_INTERVAL = 16;
+
+	// one per view being moved. released on onUp so no view is kept.
+	private static class Slot {
+		View mView;
+		boolean mPending;
+		int mPendingMode;
+		int mPendingValue;
+		int mLastMode; // of the last delivered onMove. a zero value is delivered only if the mode is new.
+	}
+
+	private final ZOTouchListener.Dispatcher mTarget;
+	private final Handler mHandler;
+
+	private Slot[] mSlots = new Slot[2];
+	private boolean mScheduled;
+
+	FrameCoalescingDispatcher(ZOTouchListener.Dispatcher target) {
+		mTarget = target;
+		mHandler = new Handler();
+		for (int i=0; i<mSlots.length; i++)
+			mSlots[i] = new Slot();
+	}
+
+	ZOTouchListener.Dispatcher getTarget() {
+		return mTarget;
+	}
+
+	// slot of v, or a free one
+	private Slot getSlot(View v) {
+		Slot free = null;
+		for (Slot s : mSlots) {
+			if (s.mView == v)
+				return s;
+			if (s.mView == null && free == null)
+				free = s;
+		}
+		if (free == null) {
+			Slot[] slots = new Slot[mSlots.length * 2];
+			System.arraycopy(mSlots, 0, slots, 0, mSlots.length);
+			for (int i=mSlots.length; i<slots.length; i++)
+				slots[i] = new Slot();
+			free = slots[mSlots.length];
+			mSlots = slots;
+		}
+		free.mView = v;
+		free.mPending = false;
+		free.mLastMode = -1;
+		return free;
+	}
+
+	@Override
+	public void onDown(View v) {
+		flush();
+		getSlot(v).mLastMode = -1;
+		mTarget.onDown(v);
+	}
+
+	@Override
+	public void onMove(int mode, View v, int value) {
+		final Slot s = getSlot(v);
+		if (mode == ZOTouchListener.MODE_Z) {
+			flush(s);
+			deliver(s, mode, value);
+			return;
+		}
+		if (s.mPending && s.mPendingMode != mode)
+			flush(s);
+		if (!s.mPending) {
+			s.mPending = true;
+			s.mPendingMode = mode;
+			s.mPendingValue = 0;
+			if (!mScheduled) {
+				mScheduled = true;
+				long now = SystemClock.uptimeMillis();
+				mHandler.postAtTime(this, now - now % FRAME_INTERVAL + FRAME_INTERVAL);
+			}
+		}
+		s.mPendingValue += value;
+	}
+
+	@Override
+	public void onUp(View v) {
+		flush();
+		getSlot(v).mView = null;
+		mTarget.onUp(v);
+	}
+
+	@Override
+	public void onClick(View v) {
+		flush();
+		mTarget.onClick(v);
+	}
+
+	@Override
+	public void run() {
+		flush();
+	}
+
+	// deliver the pending value of every view
+	void flush() {
+		if (mScheduled) {
+			mScheduled = false;
+			mHandler.removeCallbacks(this);
+		}
+		for (Slot s : mSlots)
+			flush(s);
+	}
+
+	private void flush(Slot s) {
+		if (!s.mPending)
+			return;
+		s.mPending = false;
+		if (s.mPendingValue != 0 || s.mPendingMode != s.mLastMode)
+			deliver(s, s.mPendingMode, s.mPendingValue);
+	}
+
+	private void deliver(Slot s, int mode, int value) {
+		s.mLastMode = mode;
+		mTarget.onMove(mode, s.mView, value);
+	}
+}
@@ -20,7 +20,11 @@ package dev.easetheworld.ui.zo;
 
 import android.content.Context;
 import android.view.MotionEvent;
+import android.view.ViewConfiguration;
 
+/**
+ * Android adapter of {@link StrokeGestureEngine}. Feeds {@link MotionEvent} to the engine.
+ */
 public class StrokeGestureDetector {
 	
     public static interface OnStrokeGestureListener {
@@ -73,20 +77,61 @@ public class StrokeGestureDetector {
         boolean onSingleTapUp(MotionEvent e);
     }
     
-    // gesture listener
-    private final OnStrokeGestureListener mListener;
-    
-    // last position
-    private float mLastMotionY;
-    private float mLastMotionX;
+    /**
+     * Same as {@link OnStrokeGestureListener} except the stroke start is a reused {@link StrokeStart}
+     * instead of a copy of the {@link MotionEvent}, so no event is obtained per stroke.
+     */
+    public static interface OnStrokeStartListener {
+    	
+        /**
+         * @param e The down motion event.
+         */
+        void onDown(MotionEvent e);
+        
+		/**
+		 * @param start The stroke start. Reused for the next stroke, so copy it to keep it.
+		 * @param e The motion event that starts this stroke.
+		 */
+		void onStrokeStart(StrokeStart start, MotionEvent e);
+		
+		/**
+		 * @param start The start of the current stroke. Same instance as onStrokeStart.
+		 * @param e The motion event that triggered the current onStrokeMove.
+		 * @param distanceX The distance along the X axis since the last call to onStrokeMove.
+		 * @param distanceY The distance along the Y axis since the last call to onStrokeMove.
+		 */
+		void onStrokeMove(StrokeStart start, MotionEvent e, float distanceX, float distanceY);
+		
+        /**
+         * @param e The up motion event.
+         */
+        void onUp(MotionEvent e);
+        
+        /**
+         * @param e The up motion event that completed the first tap.
+         * @return true if the event is consumed, else false. If true, onUp will not be called.
+         */
+        boolean onSingleTapUp(MotionEvent e);
+    }
+    
+    // gesture listener. null if the engine listener is given directly.
+    private final OnStrokeStartListener mListener;
     
-    // single tap
-    private boolean mIsSingleTap;
+    // the event being fed to the engine
+    private MotionEvent mCurrentEvent;
 
-    // stroke
-    private MotionEvent mStrokeStartEvent;
+    // stroke start of each pointer
+    private final StrokeStart[] mStrokeStart = new StrokeStart[StrokeGestureEngine.MAX_POINTERS];
+    
+    private final StrokeGestureEngine mEngine;
     
-    private StrokeTracker mStrokeTracker;
+    // samples of one ACTION_MOVE, historical ones and the current one.
+    private float[] mBatchXY = new float[2 * 8];
+    private long[] mBatchTime = new long[8];
+    
+    private boolean mMultiPointer;
+    // bit per pointer id between its down and up
+    private int mTrackedPointers;
     
     /**
      * Creates a GestureDetector with the supplied listener.
@@ -101,15 +146,93 @@ public class StrokeGestureDetector {
      * @throws NullPointerException if {@code listener} is null.
      */
     public StrokeGestureDetector(Context context, OnStrokeGestureListener listener) {
+        this(context, new MotionEventListenerAdapter(listener), null);
+    }
+    
+    // one of the listeners is null
+    private StrokeGestureDetector(Context context, OnStrokeStartListener listener, StrokeGestureEngine.OnStrokeListener engineListener) {
+        mListener = listener;
+		mEngine = new StrokeGestureEngine(ViewConfiguration.get(context).getScaledTouchSlop(),
+				listener != null ? mEngineListener : engineListener);
+    }
+    
+    /**
+     * Creates a detector which gives the stroke start as a reused {@link StrokeStart}.
+     * Nothing is allocated per stroke.
+     *
+     * @param context the application's context
+     * @param listener the listener invoked for all the callbacks, this must
+     * not be null.
+     *
+     * @throws NullPointerException if {@code listener} is null.
+     */
+    public static StrokeGestureDetector withStrokeStartListener(Context context, OnStrokeStartListener listener) {
         if (listener == null) {
-            throw new NullPointerException("OnGestureListener must not be null");
+            throw new NullPointerException("OnStrokeStartListener must not be null");
         }
-        mListener = listener;
-        
-		mStrokeTracker = new StrokeTracker(context);
+        return new StrokeGestureDetector(context, listener, null);
+    }
+    
+    /**
+     * Creates a detector which calls the engine listener directly.
+     * Callbacks have no {@link MotionEvent}, so no event is copied at stroke start.
+     *
+     * @param context the application's context
+     * @param listener the listener invoked for all the callbacks, this must
+     * not be null.
+     *
+     * @throws NullPointerException if {@code listener} is null.
+     */
+    public static StrokeGestureDetector withEngineListener(Context context, StrokeGestureEngine.OnStrokeListener listener) {
+        return new StrokeGestureDetector(context, null, listener);
+    }
+    
+    public StrokeTracker getStrokeTracker() {
+    	return mEngine.getStrokeTracker();
+    }
+    
+    public StrokeTracker getStrokeTracker(int pointerId) {
+    	return mEngine.getStrokeTracker(pointerId);
+    }
+    
+    /**
+     * If true, every pointer up to StrokeGestureEngine.MAX_POINTERS is tracked separately,
+     * from its down or pointer down to its up or pointer up.
+     * Else only the pointer of the down is tracked. Default is false.
+     */
+    public void setMultiPointer(boolean multiPointer) {
+    	mMultiPointer = multiPointer;
+    }
+    
+    /**
+     * Predict stroke starts horizon milliseconds ahead.
+     * Only used with an {@link StrokeGestureEngine.OnPredictedStrokeListener}. Default is 0, off.
+     */
+    public void setPredictionHorizon(long horizon) {
+    	mEngine.setPredictionHorizon(horizon);
     }
     
-    private int mStrokeIndex;
+    /**
+     * Smooth the move samples before stroke detection. null for raw samples, which is the default.
+     */
+    public void setFilter(TouchFilter filter) {
+    	mEngine.setFilter(filter);
+    }
+    
+    /**
+     * Resample the move samples, historical ones included, to a fixed time step or distance
+     * before stroke detection. null for the samples as reported, which is the default.
+     */
+    public void setResampler(TouchResampler resampler) {
+    	mEngine.setResampler(resampler);
+    }
+    
+    /**
+     * @return pointer id of the current callback.
+     */
+    public int getPointerId() {
+    	return mEngine.getPointerId();
+    }
 
     /**
      * Analyzes the given motion event and if applicable triggers the
@@ -120,60 +243,162 @@ public class StrokeGestureDetector {
      */
     public boolean onTouchEvent(MotionEvent ev) {
 
-        final float y = ev.getY();
-        final float x = ev.getX();
+        final long time = ev.getEventTime();
 
         boolean handled = false;
         
+        mCurrentEvent = ev;
         switch (ev.getActionMasked()) {
         case MotionEvent.ACTION_DOWN:
-            mIsSingleTap = true;
-            
-            mListener.onDown(ev);
-        	mStrokeTracker.addTouchDown(x, y);
-        	mStrokeIndex = 0;
+        	if (!mMultiPointer) // with split touch, a down may come for a new pointer while the others are down in other views.
+        		mTrackedPointers = 0;
+        	touchDown(ev, 0, time);
             handled = true; // if ACTION_DOWN doesn't return true, ACTION_MOVE will not come.
         	break;
+        case MotionEvent.ACTION_POINTER_DOWN:
+        	if (mMultiPointer)
+        		touchDown(ev, ev.getActionIndex(), time);
+        	break;
+        case MotionEvent.ACTION_CANCEL:
+        	// only the pointers of this event end. with split touch, the others may still be down in other views.
+        	final int cancelCount = ev.getPointerCount();
+        	for (int i = 0; i < cancelCount; i++) {
+        		final int pointerId = ev.getPointerId(i);
+        		if (isTracked(pointerId)) {
+        			mTrackedPointers &= ~(1 << pointerId);
+        			mEngine.touchCancel(pointerId, ev.getX(i), ev.getY(i), time);
+        		}
+        	}
+        	break;
         case MotionEvent.ACTION_MOVE:
-        	for (int i = 0; i < ev.getHistorySize(); i++) {
-        		float historicalX = ev.getHistoricalX(i);
-        		float historicalY = ev.getHistoricalY(i);
-        		handleTouchMove(ev, historicalX, historicalY);
-
-        		mLastMotionX = historicalX;
-        		mLastMotionY = historicalY;
+        	final int pointerCount = ev.getPointerCount();
+        	for (int i = 0; i < pointerCount; i++) {
+        		final int pointerId = ev.getPointerId(i);
+        		if (isTracked(pointerId))
+        			touchMoves(ev, i, pointerId, time);
         	}
-    		handleTouchMove(ev, x, y);
-        	break;
+        	break;
+        case MotionEvent.ACTION_POINTER_UP:
         case MotionEvent.ACTION_UP:
-        	if (mIsSingleTap)
-            	handled = mListener.onSingleTapUp(ev);
-        	if (!handled)
-				mListener.onUp(ev);
+        	final int index = ev.getActionIndex(); // 0 for ACTION_UP
+        	final int pointerId = ev.getPointerId(index);
+        	if (isTracked(pointerId)) {
+        		mTrackedPointers &= ~(1 << pointerId);
+        		handled = mEngine.touchUp(pointerId, ev.getX(index), ev.getY(index), time);
+        	}
             break;
         }
-
-        mLastMotionX = x;
-        mLastMotionY = y;
+        mCurrentEvent = null;
 
         return handled;
     }
     
-    private void handleTouchMove(MotionEvent ev, float x, float y) {
-    	int state = mStrokeTracker.addTouchMove(x, y);
-    	switch(state) {
-    	case StrokeTracker.STROKE_START:
+    private boolean isTracked(int pointerId) {
+    	return pointerId < StrokeGestureEngine.MAX_POINTERS && (mTrackedPointers & (1 << pointerId)) != 0;
+    }
+    
+    private void touchDown(MotionEvent ev, int index, long time) {
+    	final int pointerId = ev.getPointerId(index);
+    	if (pointerId >= StrokeGestureEngine.MAX_POINTERS)
+    		return;
+    	mTrackedPointers |= 1 << pointerId;
+    	mEngine.touchDown(pointerId, ev.getX(index), ev.getY(index), time);
+    }
+    
+    // historical samples and the current one of a pointer
+    private void touchMoves(MotionEvent ev, int index, int pointerId, long time) {
+    	final int historySize = ev.getHistorySize();
+    	final int count = historySize + 1;
+    	if (mBatchTime.length < count) {
+    		mBatchXY = new float[2 * count];
+    		mBatchTime = new long[count];
+    	}
+    	final float[] xy = mBatchXY;
+    	final long[] t = mBatchTime;
+    	for (int i = 0; i < historySize; i++) {
+    		xy[i * 2] = ev.getHistoricalX(index, i);
+    		xy[i * 2 + 1] = ev.getHistoricalY(index, i);
+    		t[i] = ev.getHistoricalEventTime(i);
+    	}
+    	xy[historySize * 2] = ev.getX(index);
+    	xy[historySize * 2 + 1] = ev.getY(index);
+    	t[historySize] = time;
+    	mEngine.touchMoves(pointerId, xy, t, count); // one onStrokeMove per event
+    }
+    
+    private final StrokeGestureEngine.OnStrokeListener mEngineListener = new StrokeGestureEngine.OnStrokeListener() {
+    	
+		@Override
+		public void onDown(float x, float y, long time) {
+			final int pointerId = mEngine.getPointerId();
+			if (mStrokeStart[pointerId] == null)
+				mStrokeStart[pointerId] = new StrokeStart();
+			mListener.onDown(mCurrentEvent);
+		}
+		
+		@Override
+		public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+			final StrokeStart start = mStrokeStart[mEngine.getPointerId()];
+			start.set(x, y, time, index, directionX, directionY);
+    		mListener.onStrokeStart(start, mCurrentEvent);
+		}
+		
+		@Override
+		public void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length) {
+    		mListener.onStrokeMove(mStrokeStart[mEngine.getPointerId()], mCurrentEvent, distanceX, distanceY);
+		}
+		
+		@Override
+		public void onUp(float x, float y, long time) {
+			mListener.onUp(mCurrentEvent);
+		}
+		
+		@Override
+		public boolean onSingleTapUp(float x, float y, long time) {
+			return mListener.onSingleTapUp(mCurrentEvent);
+		}
+	};
+    
+    /**
+     * Gives {@link OnStrokeGestureListener} a copy of the event that started the stroke.
+     */
+    private static class MotionEventListenerAdapter implements OnStrokeStartListener {
+    	private final OnStrokeGestureListener mListener;
+    	private MotionEvent mStrokeStartEvent;
+    	
+    	private MotionEventListenerAdapter(OnStrokeGestureListener listener) {
+            if (listener == null) {
+                throw new NullPointerException("OnGestureListener must not be null");
+            }
+    		mListener = listener;
+    	}
+
+		@Override
+		public void onDown(MotionEvent e) {
+			mListener.onDown(e);
+		}
+
+		@Override
+		public void onStrokeStart(StrokeStart start, MotionEvent e) {
             if (mStrokeStartEvent != null)
                 mStrokeStartEvent.recycle();
-            mStrokeStartEvent = MotionEvent.obtain(ev);
-    		mListener.onStrokeStart(mStrokeStartEvent, mStrokeIndex, mStrokeTracker.getStrokeStartDirection().x, mStrokeTracker.getStrokeStartDirection().y);
-        	mStrokeIndex++;
-    		break;
-    	case StrokeTracker.STROKE_MOVE:
-    		mListener.onStrokeMove(mStrokeStartEvent, ev, x - mLastMotionX, y - mLastMotionY);
-    		break;
-    	}
-        if (mIsSingleTap && state == StrokeTracker.STROKE_START)
-        	mIsSingleTap = false;
-    }
-}
\ No newline at end of file
+            mStrokeStartEvent = MotionEvent.obtain(e);
+    		mListener.onStrokeStart(mStrokeStartEvent, start.getIndex(), start.getDirectionX(), start.getDirectionY());
+		}
+
+		@Override
+		public void onStrokeMove(StrokeStart start, MotionEvent e, float distanceX, float distanceY) {
+    		mListener.onStrokeMove(mStrokeStartEvent, e, distanceX, distanceY);
+		}
+
+		@Override
+		public void onUp(MotionEvent e) {
+			mListener.onUp(e);
+		}
+
+		@Override
+		public boolean onSingleTapUp(MotionEvent e) {
+			return mListener.onSingleTapUp(e);
+		}
+    }
+}
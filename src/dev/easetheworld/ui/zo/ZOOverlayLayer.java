@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Direction indicator of {@link ZOTouchListener}, drawn in a full size view added to the root of the window.
+ * Replaces a PopupWindow, so a move is an invalidate of two small rects instead of a window manager call.
+ * Position changes are applied at most once per frame. The drawables and the location of the touched view
+ * are looked up once per gesture.
+ *
+ * Must be used in the UI thread.
+ */
+class ZOOverlayLayer extends View implements Runnable {
+
+	// Choreographer is not available in this api level, so use the nominal 60fps frame.
+	private static final long FRAME_INTERVAL = 16;
+
+	private final Drawable mPlus;
+	private final Drawable mMinus;
+	private final int mWidth;
+	private final int mHeight;
+	private Drawable mCurrent;
+
+	private final int[] mLocationXY = new int[2];
+	// location of the touched view in this layer
+	private int mOriginX;
+	private int mOriginY;
+
+	private boolean mShowing;
+	private boolean mPosted;
+	// position to apply at the next frame, top left in this layer
+	private int mPendingLeft;
+	private int mPendingTop;
+
+	ZOOverlayLayer(Context context) {
+		super(context);
+		mPlus = context.getResources().getDrawable(android.R.drawable.btn_plus);
+		mMinus = context.getResources().getDrawable(android.R.drawable.btn_minus);
+		mWidth = mPlus.getIntrinsicWidth();
+		mHeight = mPlus.getIntrinsicHeight();
+		mPlus.setBounds(0, 0, mWidth, mHeight);
+		mMinus.setBounds(0, 0, mWidth, mHeight);
+		mCurrent = mPlus;
+		setWillNotDraw(false);
+	}
+
+	/**
+	 * Start a gesture on the view. Adds this layer to the root of the view's window if it is not yet.
+	 * Nothing is drawn until the first moveTo.
+	 */
+	void begin(View target) {
+		View root = target.getRootView();
+		if (getParent() != root) {
+			if (getParent() != null)
+				((ViewGroup)getParent()).removeView(this);
+			if (!(root instanceof ViewGroup))
+				return;
+			((ViewGroup)root).addView(this, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+		}
+		target.getLocationInWindow(mLocationXY);
+		mOriginX = mLocationXY[0];
+		mOriginY = mLocationXY[1];
+		getLocationInWindow(mLocationXY);
+		mOriginX -= mLocationXY[0];
+		mOriginY -= mLocationXY[1];
+	}
+
+	/**
+	 * @param x, y touch position in the view of begin(). The indicator is drawn above it.
+	 */
+	void moveTo(int x, int y) {
+		if (getParent() == null)
+			return;
+		mPendingLeft = mOriginX + x - mWidth / 2;
+		mPendingTop = mOriginY + y - mHeight * 2;
+		if (!mShowing || getHandler() == null) {
+			mShowing = true;
+			run();
+		} else if (!mPosted) {
+			mPosted = true;
+			long now = SystemClock.uptimeMillis();
+			getHandler().postAtTime(this, now - now % FRAME_INTERVAL + FRAME_INTERVAL);
+		}
+	}
+
+	void setDirection(int direction) {
+		Drawable d = direction > 0 ? mPlus : mMinus;
+		if (d == mCurrent)
+			return;
+		mCurrent = d;
+		if (mShowing)
+			invalidateIndicator();
+	}
+
+	void hide() {
+		if (mPosted) {
+			removeCallbacks(this);
+			mPosted = false;
+		}
+		if (mShowing) {
+			mShowing = false;
+			invalidateIndicator();
+		}
+	}
+
+	// apply the pending position. both drawables have the same bounds.
+	@Override
+	public void run() {
+		mPosted = false;
+		if (!mShowing)
+			return;
+		invalidateIndicator();
+		mPlus.setBounds(mPendingLeft, mPendingTop, mPendingLeft + mWidth, mPendingTop + mHeight);
+		mMinus.setBounds(mPendingLeft, mPendingTop, mPendingLeft + mWidth, mPendingTop + mHeight);
+		invalidateIndicator();
+	}
+
+	private void invalidateIndicator() {
+		invalidate(mCurrent.getBounds());
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if (mShowing)
+			mCurrent.draw(canvas);
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * One {@link ZOTouchListener} shared by many views, for lists and grids of ZO controls.
+ * The detector, the trackers (one per active pointer) and the overlay are made once per hub.
+ * Each view only has a {@link Handle} with its dispatcher and mode, found from the view in a weak map.
+ * The hub keeps no list of views, so rows dropped by an adapter swap or a re-inflation are not held.
+ *
+ * With ListView or GridView, attach when a row view is made.
+ * A recycled row keeps its handle, so the dispatcher should find the item from the view. (tag, position)
+ * The parent is not allowed to intercept a touch that starts on an attached view,
+ * so leave part of the row free to scroll the list.
+ *
+ * Must be used in the UI thread.
+ */
+public class ZOTouchHub {
+
+	private final ZOTouchListener mListener;
+
+	// not the keyed view tag, which is a static map before api 14 and would keep the views of a dispatcher's activity.
+	private final WeakHashMap<View, Handle> mHandles = new WeakHashMap<View, Handle>();
+
+	// attached view under the pointer down being passed to the listener
+	private View mPointerDownTarget;
+	private final int[] mLocationXY = new int[2];
+
+	public ZOTouchHub(Context context) {
+		mListener = new ZOTouchListener(context, mRouter).setMultiPointer(true);
+		mListener.setAttachedViewFinder(mFinder);
+	}
+
+	public ZOTouchHub(Context context, int distanceThresholdDip) {
+		mListener = new ZOTouchListener(context, mRouter, distanceThresholdDip).setMultiPointer(true);
+		mListener.setAttachedViewFinder(mFinder);
+	}
+
+	/**
+	 * The shared listener, to set the gain curve, frame coalescing or trace recorder of all the views.
+	 * Do not set it as a touch listener or change its mode, use {@link #attach(View, ZOTouchListener.Dispatcher)}.
+	 */
+	public ZOTouchListener getTouchListener() {
+		return mListener;
+	}
+
+	/**
+	 * Make the view a ZO control of this hub.
+	 *
+	 * @return handle to change the dispatcher or mode of the view, or to detach it.
+	 */
+	public Handle attach(View v, ZOTouchListener.Dispatcher dispatcher) {
+		Handle handle = new Handle(this, v, dispatcher);
+		mHandles.put(v, handle);
+		v.setOnTouchListener(handle);
+		return handle;
+	}
+
+	/**
+	 * @return handle of the view attached to this hub, or null
+	 */
+	public Handle getHandle(View v) {
+		return v == null ? null : mHandles.get(v);
+	}
+
+	/**
+	 * Per view part of the hub. A few fields, no detector or overlay.
+	 */
+	public static final class Handle implements View.OnTouchListener {
+		private final ZOTouchHub mHub;
+		// weak, or the value of the hub's weak map would keep its key
+		private final WeakReference<View> mView;
+		private ZOTouchListener.Dispatcher mDispatcher;
+		private int mMode = ZOStateMachine.MODE_ZO;
+
+		private Handle(ZOTouchHub hub, View view, ZOTouchListener.Dispatcher dispatcher) {
+			mHub = hub;
+			mView = new WeakReference<View>(view);
+			mDispatcher = dispatcher;
+		}
+
+		public Handle setDispatcher(ZOTouchListener.Dispatcher dispatcher) {
+			mDispatcher = dispatcher;
+			return this;
+		}
+
+		/**
+		 * @param mode ZOTouchListener.MODE_Z, MODE_O or 0 for both. Used from the next down.
+		 */
+		public Handle setMode(int mode) {
+			mMode = mode;
+			return this;
+		}
+
+		public View getView() {
+			return mView.get();
+		}
+
+		/**
+		 * Stop being a ZO control. The touch listener of the view is cleared.
+		 */
+		public void detach() {
+			final View view = mView.get();
+			if (view == null || mHub.mHandles.get(view) != this)
+				return;
+			view.setOnTouchListener(null);
+			mHub.mHandles.remove(view);
+		}
+
+		@Override
+		public boolean onTouch(View v, MotionEvent event) {
+			return mHub.onTouch(this, v, event);
+		}
+	}
+
+	private boolean onTouch(Handle handle, View v, MotionEvent event) {
+		final int action = event.getActionMasked();
+		if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_POINTER_DOWN) {
+			Handle target = handle;
+			if (action == MotionEvent.ACTION_POINTER_DOWN) {
+				final int index = event.getActionIndex();
+				v.getLocationInWindow(mLocationXY);
+				Handle found = findHandleAt(v.getRootView(), mLocationXY[0] + event.getX(index), mLocationXY[1] + event.getY(index));
+				if (found != null)
+					target = found;
+			}
+			mPointerDownTarget = target == handle ? v : target.getView();
+			if (v.getParent() != null) // a ZO stroke is not a scroll of the list
+				v.getParent().requestDisallowInterceptTouchEvent(true);
+			mListener.setMode(target.mMode); // read at the down of the pointer
+		}
+		boolean ret = mListener.onTouch(v, event);
+		mPointerDownTarget = null;
+		return ret;
+	}
+
+	// handle of this hub on the deepest view under x, y, which are in the coordinates of the view.
+	// only walked at a pointer down.
+	private Handle findHandleAt(View view, float x, float y) {
+		if (view.getVisibility() != View.VISIBLE || x < 0 || y < 0 || x >= view.getWidth() || y >= view.getHeight())
+			return null;
+		if (view instanceof ViewGroup) {
+			final ViewGroup group = (ViewGroup)view;
+			for (int i = group.getChildCount() - 1; i >= 0; i--) {
+				final View child = group.getChildAt(i);
+				Handle found = findHandleAt(child, x + group.getScrollX() - child.getLeft(), y + group.getScrollY() - child.getTop());
+				if (found != null)
+					return found;
+			}
+		}
+		return mHandles.get(view);
+	}
+
+	// gives the listener the view found in onTouch
+	private final ZOTouchListener.AttachedViewFinder mFinder = new ZOTouchListener.AttachedViewFinder() {
+
+		@Override
+		public View findAttachedView(View v, float x, float y) {
+			return mPointerDownTarget != null ? mPointerDownTarget : v;
+		}
+	};
+
+	// forwards to the dispatcher of the view's handle
+	private final ZOTouchListener.Dispatcher mRouter = new ZOTouchListener.Dispatcher() {
+
+		@Override
+		public void onDown(View v) {
+			Handle handle = getHandle(v);
+			if (handle != null)
+				handle.mDispatcher.onDown(v);
+		}
+
+		@Override
+		public void onMove(int mode, View v, int value) {
+			Handle handle = getHandle(v);
+			if (handle != null)
+				handle.mDispatcher.onMove(mode, v, value);
+		}
+
+		@Override
+		public void onUp(View v) {
+			Handle handle = getHandle(v);
+			if (handle != null)
+				handle.mDispatcher.onUp(v);
+		}
+
+		@Override
+		public void onClick(View v) {
+			Handle handle = getHandle(v);
+			if (handle != null)
+				handle.mDispatcher.onClick(v);
+		}
+	};
+}
@@ -18,44 +18,54 @@
 
 package dev.easetheworld.ui.zo;
 
+import java.util.ArrayList;
+
 import android.content.Context;
-import android.util.FloatMath;
-import android.util.Log;
-import android.view.Gravity;
+import android.os.Handler;
 import android.view.MotionEvent;
 import android.view.View;
-import android.widget.ImageView;
-import android.widget.PopupWindow;
+import android.view.ViewConfiguration;
 
 public class ZOTouchListener implements View.OnTouchListener {
 	
-	private static final String TAG = "ZOTouchListener";
-	
-    private static final int MODE_ZO = 0;
-    public static final int MODE_Z = 1;
-    public static final int MODE_O = 2;
-	private int mStartMode;
-    private int mMode;
-    
-	private static final long THRESHOLD_START_MODE_O_INTERVAL = 150;
-    
-    private static final int DIRECTION_FORWARD = 1;
-    private static final int DIRECTION_BACKWARD = -DIRECTION_FORWARD;
-    private int mDirection;
+    public static final int MODE_Z = ZOStateMachine.MODE_Z;
+    public static final int MODE_O = ZOStateMachine.MODE_O;
     
-	private float mDistanceSum;
-	private int mDistanceThreshold;
 	private static final int DEFAULT_DISTANCE_THRESHOLD_DIP = 20;
     
-    private PopupWindow mOverlayPopup;
-    private ImageView mOverlay;
+    private ZOOverlayLayer mOverlay;
+    // view the overlay is placed for
+    private View mOverlayView;
 	
     private StrokeGestureDetector mStrokeDetector;
+    private ZOStateMachine mStateMachine;
     
     private int[] mLocationXY = new int[2];
     
 	private Dispatcher mDispatcher;
 	
+	private TraceRecorder mTrace;
+	private long mEventTime;
+	
+	// settings kept for the background recognizer
+	private final float mTouchSlop;
+	private final float mDistanceThreshold;
+	private int mMode = ZOStateMachine.MODE_ZO;
+	private boolean mMultiPointer;
+	private GainCurve mGainCurve;
+	private long mPredictionHorizon;
+	private TouchFilter mFilter;
+	private TouchResampler mResampler;
+	
+	// background recognition. a gesture is known by a token, and its views are kept in a slot of the token.
+	private static final int TOKEN_SLOTS = 64;
+	private BackgroundRecognizer mRecognizer;
+	private Handler mHandler;
+	private int mNextToken;
+	private final View[] mTokenTargets = new View[TOKEN_SLOTS];
+	private final View[] mTokenEventViews = new View[TOKEN_SLOTS];
+	private int mTrackedPointers;
+	
 	public ZOTouchListener(Context context, Dispatcher dispatcher) {
 		this(context, dispatcher, DEFAULT_DISTANCE_THRESHOLD_DIP);
 	}
@@ -63,18 +73,155 @@ public class ZOTouchListener implements View.OnTouchListener {
 	public ZOTouchListener(Context context, Dispatcher dispatcher, int distanceThresholdDip) {
 		mDispatcher = dispatcher;
 		
-        mStrokeDetector = new StrokeGestureDetector(context, mStrokeListener);
-        mOverlay = new ImageView(context);
-        mOverlay.setImageResource(android.R.drawable.btn_plus);
-        mOverlayPopup = new PopupWindow(mOverlay);
-        
-        mDistanceThreshold = (int)(context.getResources().getDisplayMetrics().density * distanceThresholdDip);
+        mStrokeDetector = StrokeGestureDetector.withEngineListener(context, mStrokeListener);
+        mOverlay = new ZOOverlayLayer(context);
         
-        mStartMode = MODE_ZO;
+        int distanceThreshold = (int)(context.getResources().getDisplayMetrics().density * distanceThresholdDip);
+        mStateMachine = new ZOStateMachine(distanceThreshold, mStateCallback);
+        mDistanceThreshold = distanceThreshold;
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
 	}
 	
 	public ZOTouchListener setMode(int mode) {
-		mStartMode = mode;
+		mStateMachine.setMode(mode);
+		mMode = mode;
+		return this;
+	}
+	
+	/**
+	 * Scale mode O values by the stroke speed, like pointer acceleration. null for the plain distance.
+	 * Fast strokes reach large values with fewer revolutions and dispatches, slow strokes keep one value per threshold.
+	 * Default is null.
+	 * @see GainCurve.Linear
+	 * @see GainCurve.Power
+	 * @see GainCurve.Piecewise
+	 */
+	public ZOTouchListener setGainCurve(GainCurve curve) {
+		mStateMachine.setGainCurve(curve);
+		mGainCurve = curve;
+		return this;
+	}
+	
+	/**
+	 * If true, every finger is a separate ZO gesture with its own mode, direction and value,
+	 * dispatched to the view which got its down.
+	 * With split touch (Android 3.0 and later) this lets one listener drive several views at once.
+	 * Default is false, only the first finger is used.
+	 */
+	public ZOTouchListener setMultiPointer(boolean multiPointer) {
+		mStrokeDetector.setMultiPointer(multiPointer);
+		mMultiPointer = multiPointer;
+		return this;
+	}
+	
+	/**
+	 * Dispatch the mode Z value when the velocity says the stroke will start within horizonMs,
+	 * instead of when the touch leaves the touch slop. A wrong prediction is taken back by the opposite mode Z value,
+	 * before the value of the real stroke. Every mode Z value is still 1 or -1.
+	 * 0 to turn off, which is the default.
+	 */
+	public ZOTouchListener setPrediction(long horizonMs) {
+		mStrokeDetector.setPredictionHorizon(horizonMs);
+		mPredictionHorizon = horizonMs;
+		return this;
+	}
+	
+	/**
+	 * Smooth the touch samples so the jitter of high resolution panels does not start strokes
+	 * or flip the direction. null for the raw samples, which is the default.
+	 * @see TouchFilter.OneEuro
+	 * @see TouchFilter.Kalman
+	 */
+	public ZOTouchListener setFilter(TouchFilter filter) {
+		mStrokeDetector.setFilter(filter);
+		mFilter = filter;
+		return this;
+	}
+	
+	/**
+	 * Resample the touch to a fixed time step or distance, so stroke detection behaves and costs the same
+	 * on 60Hz and 480Hz panels. null for the samples as reported, which is the default.
+	 * @see TouchResampler.Time
+	 * @see TouchResampler.Distance
+	 */
+	public ZOTouchListener setResampler(TouchResampler resampler) {
+		mStrokeDetector.setResampler(resampler);
+		mResampler = resampler;
+		return this;
+	}
+	
+	/**
+	 * If true, stroke detection and the mode Z / O logic run in a thread of their own.
+	 * onTouch only copies the samples, and the dispatcher is called in the UI thread
+	 * when the results come back, once per batch with the mode O values of a gesture summed.
+	 * So a slow dispatcher, filter or resampler does not delay the input.
+	 * The other settings are copied when this is turned on, so set them before.
+	 * With a trace recorder, stroke starts are not recorded.
+	 * Must be called in the UI thread. Default is false.
+	 */
+	public ZOTouchListener setBackgroundRecognition(boolean background) {
+		if (background && mRecognizer == null) {
+			mHandler = new Handler();
+			BackgroundRecognizer recognizer = new BackgroundRecognizer(mTouchSlop, mDistanceThreshold, mPostResults);
+			recognizer.getEngine().setPredictionHorizon(mPredictionHorizon);
+			recognizer.getEngine().setFilter(mFilter);
+			recognizer.getEngine().setResampler(mResampler);
+			recognizer.getStateMachine().setGainCurve(mGainCurve);
+			recognizer.start();
+			mTrackedPointers = 0;
+			mRecognizer = recognizer;
+		} else if (!background && mRecognizer != null) {
+			mRecognizer.quit();
+			mRecognizer = null;
+		}
+		return this;
+	}
+	
+	/**
+	 * Set this as the touch listener of the view. With multi pointer,
+	 * a finger that goes down on one attached view while another finger holds a different attached view
+	 * is dispatched to the view under it even if the touch is not split.
+	 */
+	public ZOTouchListener attachTo(View v) {
+		v.setOnTouchListener(this);
+		if (!mAttachedViews.contains(v))
+			mAttachedViews.add(v);
+		return this;
+	}
+	
+	// view under a pointer down, instead of the views given to attachTo. for ZOTouchHub.
+	interface AttachedViewFinder {
+		View findAttachedView(View v, float x, float y);
+	}
+	
+	void setAttachedViewFinder(AttachedViewFinder finder) {
+		mAttachedViewFinder = finder;
+	}
+	
+	/**
+	 * Record raw samples, stroke starts and dispatches to the recorder. null to stop.
+	 * Nothing is recorded while the recorder is disabled.
+	 */
+	public ZOTouchListener setTraceRecorder(TraceRecorder trace) {
+		mTrace = trace;
+		return this;
+	}
+	
+	/**
+	 * If true, mode O values are summed and delivered to the dispatcher at most once per frame,
+	 * and zero values are dropped unless the mode changes.
+	 * Mode Z values and onDown, onUp, onClick are still delivered in order, after the pending value.
+	 * Default is false.
+	 */
+	public ZOTouchListener setFrameCoalescing(boolean coalescing) {
+		if (coalescing) {
+			if (!(mDispatcher instanceof FrameCoalescingDispatcher))
+				mDispatcher = new FrameCoalescingDispatcher(mDispatcher);
+		} else if (mDispatcher instanceof FrameCoalescingDispatcher) {
+			FrameCoalescingDispatcher coalescingDispatcher = (FrameCoalescingDispatcher)mDispatcher;
+			coalescingDispatcher.flush();
+			mDispatcher = coalescingDispatcher.getTarget();
+		}
 		return this;
 	}
 	
@@ -85,127 +232,301 @@ public class ZOTouchListener implements View.OnTouchListener {
 		void onClick(View v);
 	}
 	
-	private View mMotionTarget;
-	
-	private long mDownTime;
+	// target view of each pointer
+	private final View[] mMotionTargets = new View[StrokeGestureEngine.MAX_POINTERS];
+	// view whose onTouch is running. same as the targets unless a pointer went down on another attached view.
+	private View mEventView;
+	private final ArrayList<View> mAttachedViews = new ArrayList<View>();
+	private AttachedViewFinder mAttachedViewFinder;
+	private int[] mTargetLocationXY = new int[2];
 	
-	private StrokeGestureDetector.OnStrokeGestureListener mStrokeListener = new StrokeGestureDetector.OnStrokeGestureListener() {
+	private StrokeGestureEngine.OnPredictedStrokeListener mStrokeListener = new StrokeGestureEngine.OnPredictedStrokeListener() {
 		
 		@Override
-		public void onDown(MotionEvent e) {
-			Log.i(TAG, "Down "+e);
-			if (mStartMode == MODE_ZO) {
-				mDownTime = e.getEventTime();
-			} else {
-				mDownTime = -1;
-			}
-			setModeInternal(mStartMode);
-			setDirection(DIRECTION_FORWARD);
-			mDispatcher.onDown(mMotionTarget);
+		public void onDown(float x, float y, long time) {
+			final int pointerId = mStrokeDetector.getPointerId();
+			mStateMachine.setSpeedSource(pointerId, mStrokeDetector.getStrokeTracker(pointerId));
+			mStateMachine.onDown(pointerId, x, y, time);
 		}
 		
 		@Override
-		public void onUp(MotionEvent e) {
-			Log.i(TAG, "Up "+e);
+		public void onUp(float x, float y, long time) {
 	    	dismissPopupOnScreen();
-			mDispatcher.onUp(mMotionTarget);
+			mStateMachine.onUp(mStrokeDetector.getPointerId(), x, y, time);
 		}
 		
 		@Override
-		public void onStrokeStart(MotionEvent e, int index, float directionX, float directionY) {
-			Log.i(TAG, "Start "+index+" "+e.getX()+","+e.getY()+", direction "+directionX+", "+directionY);
-			if (index == 0 && mDownTime != -1) { // check first down time
-				if ((e.getEventTime() - mDownTime) < THRESHOLD_START_MODE_O_INTERVAL)
-					setModeInternal(MODE_Z);
-				else
-					setModeInternal(MODE_O);
-				mDownTime = -1;
-			}
-			
-			switch(mMode) {
-			case MODE_Z:
-				if (index == 0) {
-					if (directionY > 0)
-						setDirection(DIRECTION_FORWARD);
-					else
-						setDirection(DIRECTION_BACKWARD);
-				}
-				mDispatcher.onMove(mMode, mMotionTarget, mDirection);
-				break;
-			case MODE_O:
-				mDistanceSum = 0;
-		    	switch(mMode) {
-		    	case MODE_O:
-		    		if (index > 0)
-			    		setDirection(-mDirection);
-		    		break;
-		    	}
-				break;
-			}
+		public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+			if (mTrace != null) // before the dispatch of mode Z
+				mTrace.record(TraceRecorder.TYPE_STROKE_START, time, x, y, index, 0, 0);
+			mStateMachine.onStrokeStart(mStrokeDetector.getPointerId(), x, y, time, index, directionX, directionY);
 		}
 		
 		@Override
-		public void onStrokeMove(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-//			Log.i(TAG, "Move e1="+e1+", e2="+e2+", distance "+distanceX+", "+distanceY);
-	    	switch(mMode) {
-	    	case MODE_O:
-	    		mDistanceSum += FloatMath.sqrt(distanceX * distanceX + distanceY * distanceY);
-	    		int diff = (int)(mDistanceSum / mDistanceThreshold);
-				mDistanceSum = mDistanceSum % mDistanceThreshold;
-				mDispatcher.onMove(mMode, mMotionTarget, mDirection * diff);
-	    		break;
-	    	}
-	    	showPopupOnScreen((int)e2.getX(), (int)e2.getY());
+		public void onStrokeStartPredicted(float x, float y, long time, int index, float directionX, float directionY) {
+			mStateMachine.onStrokeStartPredicted(mStrokeDetector.getPointerId(), x, y, time, index, directionX, directionY);
+		}
+		
+		@Override
+		public void onStrokePredictionCancel(float x, float y, long time, int index) {
+			mStateMachine.onStrokePredictionCancel(mStrokeDetector.getPointerId(), x, y, time, index);
+		}
+		
+		@Override
+		public void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length) {
+			mStateMachine.onStrokeMove(mStrokeDetector.getPointerId(), x, y, time, distanceX, distanceY, length);
+	    	showPopupOnScreen((int)x, (int)y);
 		}
 
 		@Override
-		public boolean onSingleTapUp(MotionEvent e) {
-			Log.i(TAG, "SingleTapUp "+e);
-			mDispatcher.onClick(mMotionTarget);
-			return false;
+		public boolean onSingleTapUp(float x, float y, long time) {
+			return mStateMachine.onSingleTapUp(mStrokeDetector.getPointerId(), x, y, time);
 		}
 	};
 	
-	private void setModeInternal(int mode) {
-		mMode = mode;
-	}
-	
-	private void setDirection(int direction) {
-		if (direction > 0)
-			mOverlay.setImageResource(android.R.drawable.btn_plus);
-		else
-			mOverlay.setImageResource(android.R.drawable.btn_minus);
-		mDirection = direction;
-	}
-	
+	private ZOStateMachine.Callback mStateCallback = new ZOStateMachine.Callback() {
+		
+		@Override
+		public void onDown() {
+			mDispatcher.onDown(mMotionTargets[mStateMachine.getPointerId()]);
+		}
+		
+		@Override
+		public void onMove(int mode, int value) {
+			if (mTrace != null)
+				mTrace.record(TraceRecorder.TYPE_DISPATCH, mEventTime, 0f, 0f, -1, mode, value);
+			mDispatcher.onMove(mode, mMotionTargets[mStateMachine.getPointerId()], value);
+		}
+		
+		@Override
+		public void onUp() {
+			mDispatcher.onUp(mMotionTargets[mStateMachine.getPointerId()]);
+		}
+		
+		@Override
+		public void onClick() {
+			if (mTrace != null)
+				mTrace.record(TraceRecorder.TYPE_CLICK, mEventTime, 0f, 0f, -1, 0, 0);
+			mDispatcher.onClick(mMotionTargets[mStateMachine.getPointerId()]);
+		}
+		
+		@Override
+		public void onDirection(int direction) {
+			mOverlay.setDirection(direction);
+		}
+	};
 	
+    // x, y are in the coordinates of the view which gets the events.
     private void showPopupOnScreen(int x, int y) {
-		int popupWidth = mOverlay.getDrawable().getIntrinsicWidth();
-		int popupHeight = mOverlay.getDrawable().getIntrinsicHeight();
-		mMotionTarget.getLocationOnScreen(mLocationXY);
-		int left = mLocationXY[0] + x - popupWidth / 2;
-		int top = mLocationXY[1] + y - popupHeight * 2;
-    	if (mOverlayPopup.isShowing()) {
-    		mOverlayPopup.update(left, top, -1, -1);
-    	} else {
-    		mOverlayPopup.setWidth(popupWidth);
-    		mOverlayPopup.setHeight(popupHeight);
-    		mOverlayPopup.showAtLocation(mMotionTarget, Gravity.NO_GRAVITY, left, top);
+    	showPopupOnScreen(mEventView, x, y);
+    }
+    
+    private void showPopupOnScreen(View eventView, int x, int y) {
+    	if (mOverlayView != eventView) { // location is looked up only when the view changes
+    		mOverlay.begin(eventView);
+    		mOverlayView = eventView;
     	}
+    	mOverlay.moveTo(x, y);
     }
     
     private void dismissPopupOnScreen() {
-    	mOverlayPopup.dismiss();
+    	mOverlay.hide();
+    	mOverlayView = null;
     }
 
 	@Override
 	public boolean onTouch(View v, MotionEvent event) {
-		final int action = event.getAction();
-		if (action == MotionEvent.ACTION_DOWN)
-			mMotionTarget = v;
-		boolean ret = mStrokeDetector.onTouchEvent(event);
-		if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)
-			mMotionTarget = null;
+		final int action = event.getActionMasked();
+		final int pointerId = event.getPointerId(event.getActionIndex());
+		mEventView = v;
+		if (action == MotionEvent.ACTION_DOWN && pointerId < mMotionTargets.length)
+			mMotionTargets[pointerId] = v;
+		else if (action == MotionEvent.ACTION_POINTER_DOWN && pointerId < mMotionTargets.length)
+			mMotionTargets[pointerId] = findAttachedView(v, event.getX(event.getActionIndex()), event.getY(event.getActionIndex()));
+		mEventTime = event.getEventTime();
+		if (mTrace != null)
+			recordSamples(event);
+		boolean ret = mRecognizer != null ? enqueue(v, event) : mStrokeDetector.onTouchEvent(event);
+		if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_POINTER_UP) && pointerId < mMotionTargets.length)
+			mMotionTargets[pointerId] = null;
+		else if (action == MotionEvent.ACTION_CANCEL) {
+			for (int i = 0; i < event.getPointerCount(); i++) {
+				final int cancelledId = event.getPointerId(i);
+				if (cancelledId < mMotionTargets.length)
+					mMotionTargets[cancelledId] = null;
+			}
+		}
 		return ret;
 	}
-}
\ No newline at end of file
+	
+	// same pointers as StrokeGestureDetector, copied to the recognizer. no recognition here.
+	private boolean enqueue(View v, MotionEvent ev) {
+		final BackgroundRecognizer recognizer = mRecognizer;
+		final long time = ev.getEventTime();
+		final int action = ev.getActionMasked();
+		switch (action) {
+		case MotionEvent.ACTION_DOWN:
+			if (!mMultiPointer)
+				mTrackedPointers = 0;
+			enqueueDown(v, ev, 0, time);
+			break;
+		case MotionEvent.ACTION_POINTER_DOWN:
+			if (mMultiPointer)
+				enqueueDown(v, ev, ev.getActionIndex(), time);
+			break;
+		case MotionEvent.ACTION_CANCEL:
+			final int cancelCount = ev.getPointerCount();
+			for (int i = 0; i < cancelCount; i++) {
+				final int pointerId = ev.getPointerId(i);
+				if (isTracked(pointerId)) {
+					mTrackedPointers &= ~(1 << pointerId);
+					recognizer.touchCancel(pointerId, ev.getX(i), ev.getY(i), time);
+				}
+			}
+			break;
+		case MotionEvent.ACTION_MOVE:
+			final int pointerCount = ev.getPointerCount();
+			final int historySize = ev.getHistorySize();
+			int tracked = 0;
+			for (int i = 0; i < pointerCount; i++) {
+				if (isTracked(ev.getPointerId(i)))
+					tracked++;
+			}
+			if (tracked == 0 || !recognizer.hasRoomForMoves(tracked * (historySize + 1)))
+				break;
+			for (int i = 0; i < pointerCount; i++) {
+				final int pointerId = ev.getPointerId(i);
+				if (!isTracked(pointerId))
+					continue;
+				for (int h = 0; h < historySize; h++)
+					recognizer.touchMove(pointerId, ev.getHistoricalX(i, h), ev.getHistoricalY(i, h), ev.getHistoricalEventTime(h));
+				recognizer.touchMove(pointerId, ev.getX(i), ev.getY(i), time);
+			}
+			break;
+		case MotionEvent.ACTION_POINTER_UP:
+		case MotionEvent.ACTION_UP:
+			final int index = ev.getActionIndex();
+			final int pointerId = ev.getPointerId(index);
+			if (isTracked(pointerId)) {
+				mTrackedPointers &= ~(1 << pointerId);
+				recognizer.touchUp(pointerId, ev.getX(index), ev.getY(index), time);
+			}
+			break;
+		}
+		recognizer.publish();
+		return action == MotionEvent.ACTION_DOWN; // or ACTION_MOVE will not come.
+	}
+	
+	private void enqueueDown(View v, MotionEvent ev, int index, long time) {
+		final int pointerId = ev.getPointerId(index);
+		if (pointerId >= StrokeGestureEngine.MAX_POINTERS)
+			return;
+		final int token = mNextToken;
+		mNextToken = (mNextToken + 1) & 0xffff;
+		mTokenTargets[token % TOKEN_SLOTS] = mMotionTargets[pointerId];
+		mTokenEventViews[token % TOKEN_SLOTS] = v;
+		if (mRecognizer.touchDown(pointerId, token, mMode, ev.getX(index), ev.getY(index), time))
+			mTrackedPointers |= 1 << pointerId;
+	}
+	
+	private boolean isTracked(int pointerId) {
+		return pointerId < StrokeGestureEngine.MAX_POINTERS && (mTrackedPointers & (1 << pointerId)) != 0;
+	}
+	
+	// called in the recognizer thread
+	private final Runnable mPostResults = new Runnable() {
+		@Override
+		public void run() {
+			mHandler.post(mDrainResults);
+		}
+	};
+	
+	private final Runnable mDrainResults = new Runnable() {
+		@Override
+		public void run() {
+			if (mRecognizer != null)
+				mRecognizer.drainResults(mResultHandler);
+		}
+	};
+	
+	private final BackgroundRecognizer.ResultHandler mResultHandler = new BackgroundRecognizer.ResultHandler() {
+		
+		@Override
+		public void onDown(int token) {
+			mDispatcher.onDown(mTokenTargets[token % TOKEN_SLOTS]);
+		}
+		
+		@Override
+		public void onMove(int token, int mode, int value) {
+			if (mTrace != null)
+				mTrace.record(TraceRecorder.TYPE_DISPATCH, mEventTime, 0f, 0f, -1, mode, value);
+			mDispatcher.onMove(mode, mTokenTargets[token % TOKEN_SLOTS], value);
+		}
+		
+		@Override
+		public void onUp(int token) {
+			dismissPopupOnScreen();
+			mDispatcher.onUp(mTokenTargets[token % TOKEN_SLOTS]);
+		}
+		
+		@Override
+		public void onClick(int token) {
+			if (mTrace != null)
+				mTrace.record(TraceRecorder.TYPE_CLICK, mEventTime, 0f, 0f, -1, 0, 0);
+			mDispatcher.onClick(mTokenTargets[token % TOKEN_SLOTS]);
+		}
+		
+		@Override
+		public void onDirection(int token, int direction) {
+			mOverlay.setDirection(direction);
+		}
+		
+		@Override
+		public void onPosition(int token, float x, float y) {
+			showPopupOnScreen(mTokenEventViews[token % TOKEN_SLOTS], (int)x, (int)y);
+		}
+	};
+	
+	// attached view under x, y of v, or v
+	private View findAttachedView(View v, float x, float y) {
+		if (mAttachedViewFinder != null)
+			return mAttachedViewFinder.findAttachedView(v, x, y);
+		v.getLocationOnScreen(mLocationXY);
+		final float screenX = mLocationXY[0] + x;
+		final float screenY = mLocationXY[1] + y;
+		for (int i = 0; i < mAttachedViews.size(); i++) {
+			final View attached = mAttachedViews.get(i);
+			if (!attached.isShown())
+				continue;
+			attached.getLocationOnScreen(mTargetLocationXY);
+			if (screenX >= mTargetLocationXY[0] && screenX < mTargetLocationXY[0] + attached.getWidth()
+					&& screenY >= mTargetLocationXY[1] && screenY < mTargetLocationXY[1] + attached.getHeight())
+				return attached;
+		}
+		return v;
+	}
+	
+	private void recordSamples(MotionEvent event) {
+		final TraceRecorder trace = mTrace;
+		final int type;
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			type = TraceRecorder.TYPE_DOWN;
+			break;
+		case MotionEvent.ACTION_MOVE:
+			type = TraceRecorder.TYPE_MOVE;
+			for (int i = 0; i < event.getHistorySize(); i++)
+				trace.record(type, event.getHistoricalEventTime(i), event.getHistoricalX(i), event.getHistoricalY(i), -1, 0, 0);
+			break;
+		case MotionEvent.ACTION_UP:
+			type = TraceRecorder.TYPE_UP;
+			break;
+		case MotionEvent.ACTION_CANCEL:
+			type = TraceRecorder.TYPE_CANCEL;
+			break;
+		default:
+			return;
+		}
+		trace.record(type, event.getEventTime(), event.getX(), event.getY(), -1, 0, 0);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import dev.easetheworld.ui.zo.GestureReplay;
+import dev.easetheworld.ui.zo.GestureTrace;
+import dev.easetheworld.ui.zo.StrokeGestureEngine;
+import dev.easetheworld.ui.zo.ZOStateMachine;
+
+/**
+ * Replays every trace of some directories with every combination of settings, in parallel with fork/join,
+ * and reports one summary line per setting.
+ * Each trace is a task that runs its own StrokeGestureEngine and ZOStateMachine for each setting,
+ * so nothing is shared between threads but the read only trace files.
+ * Every column comes from that one engine run per setting.
+ *
+ * java -jar zo-batch.jar [-slop pixels,...] [-threshold pixels,...] [-angle degrees,...] [-window samples,...]
+ *   [-mode z|o|zo] [-threads n] [-out file] directory|file...
+ * Directories are searched for *.zgt files.
+ */
+public class BatchAnalyzer {
+
+	/**
+	 * One combination of the swept values.
+	 */
+	public static class Setting {
+		final float slop;
+		final float threshold;
+		final float angle;
+		final int window;
+
+		public Setting(float slop, float threshold, float angle, int window) {
+			this.slop = slop;
+			this.threshold = threshold;
+			this.angle = angle;
+			this.window = window;
+		}
+
+		static String getHeader() {
+			return "slop\tthreshold\tangle\twindow";
+		}
+
+		@Override
+		public String toString() {
+			return slop+"\t"+threshold+"\t"+angle+"\t"+window;
+		}
+	}
+
+	private final List<File> mTraces;
+	private final Setting[] mSettings;
+	private final int mMode;
+
+	public BatchAnalyzer(List<File> traces, Setting[] settings, int mode) {
+		mTraces = traces;
+		mSettings = settings;
+		mMode = mode;
+	}
+
+	/**
+	 * @return summary of every trace for each setting, in the order of the settings
+	 */
+	public BatchSummary[] run(ForkJoinPool pool) {
+		return pool.invoke(new TraceTask(0, mTraces.size()));
+	}
+
+	// traces from, to. split in halves down to one trace.
+	private class TraceTask extends RecursiveTask<BatchSummary[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final int mFrom;
+		private final int mTo;
+
+		TraceTask(int from, int to) {
+			mFrom = from;
+			mTo = to;
+		}
+
+		@Override
+		protected BatchSummary[] compute() {
+			if (mTo - mFrom <= 1)
+				return analyze(mFrom);
+			final int mid = (mFrom + mTo) >>> 1;
+			TraceTask first = new TraceTask(mFrom, mid);
+			first.fork();
+			BatchSummary[] summaries = new TraceTask(mid, mTo).compute();
+			BatchSummary[] firstSummaries = first.join();
+			for (int i=0; i<summaries.length; i++)
+				summaries[i].merge(firstSummaries[i]);
+			return summaries;
+		}
+	}
+
+	private BatchSummary[] analyze(int index) {
+		BatchSummary[] summaries = new BatchSummary[mSettings.length];
+		for (int i=0; i<summaries.length; i++)
+			summaries[i] = new BatchSummary();
+		if (index >= mTraces.size())
+			return summaries;
+		final GestureTrace trace;
+		try {
+			trace = GestureTrace.open(mTraces.get(index));
+		} catch (IOException e) {
+			System.err.println(mTraces.get(index)+" : "+e.getMessage());
+			for (BatchSummary s : summaries)
+				s.failedTraces++;
+			return summaries;
+		}
+		GestureReplay replay = new GestureReplay();
+		for (int i=0; i<mSettings.length; i++)
+			analyze(trace, mSettings[i], replay, summaries[i]);
+		return summaries;
+	}
+
+	private void analyze(GestureTrace trace, Setting setting, GestureReplay replay, BatchSummary summary) {
+		summary.traces++;
+		summary.samples += trace.getCount();
+
+		ZOStateMachine stateMachine = new ZOStateMachine(setting.threshold, summary);
+		stateMachine.setMode(mMode);
+		StrokeGestureEngine engine = new StrokeGestureEngine(setting.slop, new StartRecorder(stateMachine, trace, summary));
+		engine.setTurnWindow(setting.window);
+		engine.setTurnAngle(setting.angle);
+		stateMachine.setSpeedSource(engine.getStrokeTracker());
+		replay.replay(trace, engine);
+		summary.endTrace();
+	}
+
+	/**
+	 * Records where each stroke start of the engine lands, from the down or the previous start,
+	 * and passes every callback to the state machine.
+	 */
+	private static class StartRecorder extends GestureReplay.StrokeCounter {
+		private final GestureTrace mTrace;
+		private final BatchSummary mSummary;
+		private int mSample; // trace sample of the last callback. callbacks come in trace order.
+		private int mLastSample = -1; // of the down or the previous start, -1 before the first down
+		private long mLastTime;
+		private boolean mStarted;
+
+		StartRecorder(ZOStateMachine stateMachine, GestureTrace trace, BatchSummary summary) {
+			super(stateMachine);
+			mTrace = trace;
+			mSummary = summary;
+		}
+
+		@Override
+		public void onDown(float x, float y, long time) {
+			final int count = mTrace.getCount();
+			int sample = mLastSample < 0 ? 0 : mSample + 1; // after the previous down and its moves
+			while (sample < count - 1 && mTrace.getAction(sample) != GestureTrace.ACTION_DOWN)
+				sample++;
+			mSample = sample;
+			mLastSample = sample;
+			mLastTime = time;
+			mStarted = false;
+			super.onDown(x, y, time);
+		}
+
+		@Override
+		public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+			// last move up to the start time. resampled starts fall between samples.
+			final int count = mTrace.getCount();
+			while (mSample < count - 1 && mTrace.getAction(mSample + 1) == GestureTrace.ACTION_MOVE && mTrace.getTime(mSample + 1) <= time)
+				mSample++;
+			if (mLastSample >= 0) {
+				mSummary.addStart(!mStarted, mSample - mLastSample, time - mLastTime);
+				mStarted = true;
+				mLastSample = mSample;
+				mLastTime = time;
+			}
+			super.onStrokeStart(x, y, time, index, directionX, directionY);
+		}
+	}
+
+	/**
+	 * @return *.zgt files in the directories, and the other files as they are
+	 */
+	public static List<File> findTraces(String[] paths) {
+		List<File> traces = new ArrayList<File>();
+		for (String path : paths)
+			addTraces(new File(path), traces);
+		return traces;
+	}
+
+	private static void addTraces(File file, List<File> traces) {
+		if (!file.isDirectory()) {
+			traces.add(file);
+			return;
+		}
+		File[] files = file.listFiles();
+		if (files == null)
+			return;
+		Arrays.sort(files);
+		for (File f : files) {
+			if (f.isDirectory() || f.getName().endsWith(".zgt"))
+				addTraces(f, traces);
+		}
+	}
+
+	private static float[] parseFloats(String list) {
+		String[] values = list.split(",");
+		float[] result = new float[values.length];
+		for (int i=0; i<values.length; i++)
+			result[i] = Float.parseFloat(values[i].trim());
+		return result;
+	}
+
+	private static int[] parseInts(String list) {
+		String[] values = list.split(",");
+		int[] result = new int[values.length];
+		for (int i=0; i<values.length; i++)
+			result[i] = Integer.parseInt(values[i].trim());
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException {
+		float[] slops = { 16 };
+		float[] thresholds = { 40 };
+		float[] angles = { 90 };
+		int[] windows = { 2 };
+		int mode = ZOStateMachine.MODE_ZO;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String out = null;
+		int i = 0;
+		for (; i < args.length - 1 && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-slop"))
+				slops = parseFloats(args[i + 1]);
+			else if (args[i].equals("-threshold"))
+				thresholds = parseFloats(args[i + 1]);
+			else if (args[i].equals("-angle"))
+				angles = parseFloats(args[i + 1]);
+			else if (args[i].equals("-window"))
+				windows = parseInts(args[i + 1]);
+			else if (args[i].equals("-mode"))
+				mode = args[i + 1].equals("z") ? ZOStateMachine.MODE_Z : args[i + 1].equals("o") ? ZOStateMachine.MODE_O : ZOStateMachine.MODE_ZO;
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-out"))
+				out = args[i + 1];
+			else
+				throw new IllegalArgumentException("unknown option : "+args[i]);
+		}
+		if (i == args.length) {
+			System.err.println("usage : BatchAnalyzer [-slop pixels,...] [-threshold pixels,...] [-angle degrees,...] [-window samples,...]"
+					+" [-mode z|o|zo] [-threads n] [-out file] directory|file...");
+			System.exit(1);
+		}
+		List<File> traces = findTraces(Arrays.copyOfRange(args, i, args.length));
+
+		Setting[] settings = new Setting[slops.length * thresholds.length * angles.length * windows.length];
+		int n = 0;
+		for (float slop : slops)
+			for (float threshold : thresholds)
+				for (float angle : angles)
+					for (int window : windows)
+						settings[n++] = new Setting(slop, threshold, angle, window);
+
+		long start = System.nanoTime();
+		BatchSummary[] summaries = new BatchAnalyzer(traces, settings, mode).run(new ForkJoinPool(threads));
+		long elapsed = System.nanoTime() - start;
+
+		PrintStream report = out == null ? System.out : new PrintStream(new FileOutputStream(out));
+		report.println(Setting.getHeader()+"\t"+BatchSummary.getHeader());
+		for (int k=0; k<settings.length; k++)
+			report.println(settings[k]+"\t"+summaries[k]);
+		if (report != System.out)
+			report.close();
+		System.err.println(traces.size()+" traces, "+settings.length+" settings, "+threads+" threads, "+elapsed / 1000000+" ms");
+	}
+}
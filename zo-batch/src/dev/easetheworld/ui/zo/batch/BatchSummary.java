@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo.batch;
+
+import java.util.Locale;
+
+import dev.easetheworld.ui.zo.ZOStateMachine;
+
+/**
+ * Sums of the analysis of some traces with one setting. Summaries of disjoint traces merge by adding,
+ * so the fork/join tasks can combine them in any order.
+ * Also the ZOStateMachine callback that counts the outputs per gesture.
+ * Stroke starts come from the engine run of the same replay, through addStart.
+ */
+public class BatchSummary implements ZOStateMachine.Callback {
+
+	// ms histograms of the stroke starts, in 1ms buckets
+	private static final int LATENCY_BUCKETS = 1024;
+
+	int traces;
+	int failedTraces;
+	long samples;
+	long gestures;
+	long strokes; // stroke starts of the engine
+	long clicks;
+	long moves;
+	long zSum;
+	long oSum;
+	long zAbsSum; // |z| per gesture, summed
+	long oAbsSum;
+	long startedGestures; // gestures with a stroke start
+	long startSamples; // samples from the down to the first start, summed
+	final long[] startLatency = new long[LATENCY_BUCKETS + 1]; // last bucket is longer
+	long strokeSamples; // samples from the previous start, or the down, to each start, summed
+	final long[] strokeInterval = new long[LATENCY_BUCKETS + 1]; // ms from the previous start, or the down, to each start
+
+	// the gesture being replayed
+	private int mGestureZ;
+	private int mGestureO;
+
+	void merge(BatchSummary s) {
+		traces += s.traces;
+		failedTraces += s.failedTraces;
+		samples += s.samples;
+		gestures += s.gestures;
+		strokes += s.strokes;
+		clicks += s.clicks;
+		moves += s.moves;
+		zSum += s.zSum;
+		oSum += s.oSum;
+		zAbsSum += s.zAbsSum;
+		oAbsSum += s.oAbsSum;
+		startedGestures += s.startedGestures;
+		startSamples += s.startSamples;
+		for (int i=0; i<startLatency.length; i++)
+			startLatency[i] += s.startLatency[i];
+		strokeSamples += s.strokeSamples;
+		for (int i=0; i<strokeInterval.length; i++)
+			strokeInterval[i] += s.strokeInterval[i];
+	}
+
+	/**
+	 * @param first true for the first start after the down
+	 * @param samples trace samples from the previous start, or the down
+	 * @param ms from the previous start, or the down
+	 */
+	void addStart(boolean first, int samples, long ms) {
+		final int bucket = (int)Math.max(0, Math.min(LATENCY_BUCKETS, ms));
+		strokes++;
+		strokeSamples += samples;
+		strokeInterval[bucket]++;
+		if (first) {
+			startedGestures++;
+			startSamples += samples;
+			startLatency[bucket]++;
+		}
+	}
+
+	// smallest ms that percent of the first starts are within
+	long getStartLatency(int percent) {
+		return percentile(startLatency, startedGestures, percent);
+	}
+
+	// smallest ms that percent of the starts are within, from the previous start or the down
+	long getStrokeInterval(int percent) {
+		return percentile(strokeInterval, strokes, percent);
+	}
+
+	private static long percentile(long[] histogram, long total, int percent) {
+		if (total == 0)
+			return 0;
+		final long target = (total * percent + 99) / 100;
+		long count = 0;
+		for (int i=0; i<histogram.length; i++) {
+			count += histogram[i];
+			if (count >= target)
+				return i;
+		}
+		return LATENCY_BUCKETS;
+	}
+
+	private void endGesture() {
+		zAbsSum += Math.abs(mGestureZ);
+		oAbsSum += Math.abs(mGestureO);
+		mGestureZ = 0;
+		mGestureO = 0;
+	}
+
+	// call after each replay, the last gesture may have no up.
+	void endTrace() {
+		endGesture();
+	}
+
+	@Override
+	public void onDown() {
+		endGesture();
+		gestures++;
+	}
+
+	@Override
+	public void onMove(int mode, int value) {
+		moves++;
+		if (mode == ZOStateMachine.MODE_Z) {
+			zSum += value;
+			mGestureZ += value;
+		} else {
+			oSum += value;
+			mGestureO += value;
+		}
+	}
+
+	@Override
+	public void onUp() {
+	}
+
+	@Override
+	public void onClick() {
+		clicks++;
+	}
+
+	@Override
+	public void onDirection(int direction) {
+	}
+
+	static String getHeader() {
+		return "traces\tfailed\tsamples\tgestures\tstrokes\tstrokes/gesture\tclicks\tmoves\tz\to\t|z|/gesture\t|o|/gesture"
+				+"\tstarted\tstart samples\tstart ms p50\tstart ms p90\tstroke samples\tstroke ms p50\tstroke ms p90";
+	}
+
+	@Override
+	public String toString() {
+		return traces+"\t"+failedTraces+"\t"+samples+"\t"+gestures+"\t"+strokes+"\t"+ratio(strokes, gestures)
+				+"\t"+clicks+"\t"+moves+"\t"+zSum+"\t"+oSum+"\t"+ratio(zAbsSum, gestures)+"\t"+ratio(oAbsSum, gestures)
+				+"\t"+startedGestures+"\t"+ratio(startSamples, startedGestures)+"\t"+getStartLatency(50)+"\t"+getStartLatency(90)
+				+"\t"+ratio(strokeSamples, strokes)+"\t"+getStrokeInterval(50)+"\t"+getStrokeInterval(90);
+	}
+
+	private static String ratio(long a, long b) {
+		return b == 0 ? "0" : String.format(Locale.US, "%.2f", (double)a / b);
+	}
+}
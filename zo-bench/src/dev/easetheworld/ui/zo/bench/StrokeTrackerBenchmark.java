@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.easetheworld.ui.zo.StrokeTracker;
+
+/**
+ * Cost of one touch sample in {@link StrokeTracker}.
+ * One invocation is one whole trace, so the scores are per sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrokeTrackerBenchmark {
+
+	@Param({Traces.FLING, Traces.ZIGZAG, Traces.CIRCLE, Traces.HOLD})
+	public String trace;
+
+	@Param({"120", "240"})
+	public int rateHz;
+
+	// samples per turn detection vector. the cost should not depend on it.
+	@Param({"2", "8"})
+	public int turnWindow;
+
+	private Traces mTrace;
+	private StrokeTracker mTracker;
+
+	@Setup
+	public void setup() {
+		mTrace = Traces.create(trace, rateHz);
+		mTracker = new StrokeTracker(Traces.TOUCH_SLOP);
+		mTracker.setTurnWindow(turnWindow);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Traces.SAMPLES)
+	public int addTouchMove() {
+		final float[] xy = mTrace.xy;
+		final StrokeTracker tracker = mTracker;
+		tracker.addTouchDown(xy[0], xy[1]);
+		int states = 0;
+		for (int i = 1; i < Traces.SAMPLES; i++)
+			states += tracker.addTouchMove(xy[i * 2], xy[i * 2 + 1]);
+		return states;
+	}
+}
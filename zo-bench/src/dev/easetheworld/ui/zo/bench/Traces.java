@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo.bench;
+
+import java.util.Random;
+
+/**
+ * Synthetic single touch traces. Sample 0 is the down, the rest are moves.
+ * Positions are in pixels of a density 2 screen, times are in milliseconds.
+ */
+public class Traces {
+
+	public static final int SAMPLES = 1024;
+
+	// typical values of a density 2 device
+	public static final float TOUCH_SLOP = 16f;
+	public static final float DISTANCE_THRESHOLD = 40f;
+
+	public static final String FLING = "fling";
+	public static final String ZIGZAG = "zigzag";
+	public static final String CIRCLE = "circle";
+	public static final String HOLD = "hold";
+
+	public final float[] xy;
+	public final long[] t;
+	public final int count;
+
+	private Traces(int count) {
+		this.xy = new float[count * 2];
+		this.t = new long[count];
+		this.count = count;
+	}
+
+	/**
+	 * @param kind FLING, ZIGZAG, CIRCLE or HOLD
+	 * @param rateHz input report rate
+	 */
+	public static Traces create(String kind, int rateHz) {
+		Traces trace = new Traces(SAMPLES);
+		Random random = new Random(kind.hashCode() * 31 + rateHz);
+		double dt = 1000.0 / rateHz;
+		for (int i = 0; i < SAMPLES; i++) {
+			double time = i * dt;
+			double seconds = time / 1000.0;
+			double x;
+			double y;
+			if (FLING.equals(kind)) { // 2000 px/s diagonal line
+				x = 100 + seconds * 2000 * 0.6;
+				y = 100 + seconds * 2000 * 0.8;
+			} else if (ZIGZAG.equals(kind)) { // 150 px up and down at 1500 px/s
+				double phase = (seconds * 1500 / 150) % 2.0;
+				x = 240;
+				y = 400 + 150 * (phase < 1.0 ? phase : 2.0 - phase);
+			} else if (CIRCLE.equals(kind)) { // radius 150 px, 2 turns per second
+				double angle = seconds * 2 * Math.PI * 2;
+				x = 240 + 150 * Math.sin(angle);
+				y = 400 - 150 * Math.cos(angle);
+			} else if (HOLD.equals(kind)) { // finger resting on the screen
+				x = 240;
+				y = 400;
+			} else {
+				throw new IllegalArgumentException("unknown trace : "+kind);
+			}
+			// panel noise
+			trace.xy[i * 2] = (float)(x + random.nextGaussian() * 0.7);
+			trace.xy[i * 2 + 1] = (float)(y + random.nextGaussian() * 0.7);
+			trace.t[i] = (long)time;
+		}
+		return trace;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.easetheworld.ui.zo.StrokeGestureEngine;
+import dev.easetheworld.ui.zo.ZOStateMachine;
+
+/**
+ * Cost of one touch sample through the whole recognition chain,
+ * StrokeGestureEngine (the core of StrokeGestureDetector.onTouchEvent) to ZOStateMachine to Dispatcher.onMove.
+ * The dispatcher only consumes its arguments, so this is the cost of the engine itself.
+ * onTouchEventBatched feeds one 60 Hz frame of samples at a time like StrokeGestureDetector does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZOPipelineBenchmark {
+
+	@Param({Traces.FLING, Traces.ZIGZAG, Traces.CIRCLE, Traces.HOLD})
+	public String trace;
+
+	@Param({"120", "240"})
+	public int rateHz;
+
+	@Param({"Z", "O"})
+	public String mode;
+
+	private Traces mTrace;
+	private StrokeGestureEngine mEngine;
+	private Blackhole mBlackhole;
+	private int mFrameSize;
+	private float[] mFrameXY;
+	private long[] mFrameTime;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		mTrace = Traces.create(trace, rateHz);
+		mBlackhole = blackhole;
+		mFrameSize = rateHz / 60;
+		mFrameXY = new float[mFrameSize * 2];
+		mFrameTime = new long[mFrameSize];
+		ZOStateMachine stateMachine = new ZOStateMachine(Traces.DISTANCE_THRESHOLD, new ZOStateMachine.Callback() {
+			@Override
+			public void onDown() {}
+
+			@Override
+			public void onMove(int mode, int value) {
+				mBlackhole.consume(value);
+			}
+
+			@Override
+			public void onUp() {}
+
+			@Override
+			public void onClick() {}
+
+			@Override
+			public void onDirection(int direction) {}
+		});
+		stateMachine.setMode("Z".equals(mode) ? ZOStateMachine.MODE_Z : ZOStateMachine.MODE_O);
+		mEngine = new StrokeGestureEngine(Traces.TOUCH_SLOP, stateMachine);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Traces.SAMPLES)
+	public boolean onTouchEvent() {
+		final float[] xy = mTrace.xy;
+		final long[] t = mTrace.t;
+		final StrokeGestureEngine engine = mEngine;
+		engine.touchDown(xy[0], xy[1], t[0]);
+		for (int i = 1; i < Traces.SAMPLES - 1; i++)
+			engine.touchMove(xy[i * 2], xy[i * 2 + 1], t[i]);
+		final int last = Traces.SAMPLES - 1;
+		return engine.touchUp(xy[last * 2], xy[last * 2 + 1], t[last]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Traces.SAMPLES)
+	public boolean onTouchEventBatched() {
+		final float[] xy = mTrace.xy;
+		final long[] t = mTrace.t;
+		final float[] frameXY = mFrameXY;
+		final long[] frameTime = mFrameTime;
+		final StrokeGestureEngine engine = mEngine;
+		engine.touchDown(xy[0], xy[1], t[0]);
+		final int last = Traces.SAMPLES - 1;
+		for (int i = 1; i < last; i += mFrameSize) {
+			final int count = Math.min(mFrameSize, last - i);
+			System.arraycopy(xy, i * 2, frameXY, 0, count * 2);
+			System.arraycopy(t, i, frameTime, 0, count);
+			engine.touchMoves(frameXY, frameTime, count);
+		}
+		return engine.touchUp(xy[last * 2], xy[last * 2 + 1], t[last]);
+	}
+}
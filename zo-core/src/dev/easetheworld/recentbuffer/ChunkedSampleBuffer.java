@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.recentbuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Unbounded (x, y, time) samples in chunks of CHUNK_SIZE primitive arrays. Unlike {@link FloatPairRingBuffer}
+ * nothing is dropped, and adding a sample never copies the others.
+ * Time is kept as int milliseconds from the first sample of its chunk.
+ *
+ * With a spill file, chunks older than the newest heapChunks are moved to memory mapped regions of the file
+ * and their arrays are reused, so the heap stays bounded however long the capture is.
+ * If the file cannot be written, spilling stops and the chunks stay on the heap.
+ */
+public class ChunkedSampleBuffer {
+	public static final int CHUNK_SIZE = 4096;
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int CHUNK_BYTES = CHUNK_SIZE * 4 * 3; // x, y, time
+
+	private static final class Chunk {
+		float[] mX;
+		float[] mY;
+		int[] mTime;
+		long mBaseTime;
+		FloatBuffer mMappedXY; // x of every sample, then y
+		IntBuffer mMappedTime;
+	}
+
+	private Chunk[] mChunks = new Chunk[16];
+	private int mChunkCount;
+	private int mSpilledCount; // chunks from 0 are in the file
+	private int mSize;
+
+	private final File mSpillFile;
+	private final int mHeapChunks;
+	private FileChannel mSpillChannel;
+	private boolean mSpillFailed;
+	private Chunk mFree; // arrays of the last spilled chunk for the next one
+
+	/**
+	 * Every chunk on the heap.
+	 */
+	public ChunkedSampleBuffer() {
+		this(null, 0);
+	}
+
+	/**
+	 * @param spillFile created when the first chunk is spilled, overwritten from the start after clear.
+	 * @param heapChunks full chunks kept on the heap besides the one being filled
+	 */
+	public ChunkedSampleBuffer(File spillFile, int heapChunks) {
+		if (heapChunks < 0)
+			throw new IllegalArgumentException("heapChunks must not be negative : "+heapChunks);
+		mSpillFile = spillFile;
+		mHeapChunks = heapChunks;
+	}
+
+	public int getSize() {
+		return mSize;
+	}
+
+	public void clear() {
+		// keep the heap arrays of the newest chunk
+		if (mFree == null && mChunkCount > mSpilledCount)
+			mFree = mChunks[mChunkCount - 1];
+		for (int i=0; i<mChunkCount; i++)
+			mChunks[i] = null;
+		mChunkCount = 0;
+		mSpilledCount = 0;
+		mSize = 0;
+	}
+
+	/**
+	 * Clear and close the spill file. The buffer can be used again, the file is reopened when needed.
+	 */
+	public void close() throws IOException {
+		clear();
+		if (mSpillChannel != null) {
+			FileChannel channel = mSpillChannel;
+			mSpillChannel = null;
+			channel.close();
+		}
+	}
+
+	public void add(float x, float y, long time) {
+		final int j = mSize & CHUNK_MASK;
+		if (j == 0)
+			addChunk(time);
+		final Chunk c = mChunks[mChunkCount - 1];
+		c.mX[j] = x;
+		c.mY[j] = y;
+		c.mTime[j] = (int)(time - c.mBaseTime);
+		mSize++;
+	}
+
+	private void addChunk(long baseTime) {
+		if (mSpillFile != null && !mSpillFailed && mChunkCount - mSpilledCount > mHeapChunks)
+			spill(mChunks[mSpilledCount]);
+		Chunk c = mFree;
+		mFree = null;
+		if (c == null) {
+			c = new Chunk();
+			c.mX = new float[CHUNK_SIZE];
+			c.mY = new float[CHUNK_SIZE];
+			c.mTime = new int[CHUNK_SIZE];
+		}
+		c.mBaseTime = baseTime;
+		c.mMappedXY = null;
+		c.mMappedTime = null;
+		if (mChunkCount == mChunks.length) {
+			Chunk[] chunks = new Chunk[mChunks.length * 2];
+			System.arraycopy(mChunks, 0, chunks, 0, mChunkCount);
+			mChunks = chunks;
+		}
+		mChunks[mChunkCount++] = c;
+	}
+
+	// write the oldest heap chunk to its region of the file and give its arrays to the next chunk.
+	private void spill(Chunk old) {
+		final MappedByteBuffer region;
+		try {
+			if (mSpillChannel == null)
+				mSpillChannel = new RandomAccessFile(mSpillFile, "rw").getChannel();
+			region = mSpillChannel.map(FileChannel.MapMode.READ_WRITE, (long)mSpilledCount * CHUNK_BYTES, CHUNK_BYTES);
+		} catch (IOException e) {
+			mSpillFailed = true;
+			return;
+		}
+		region.order(ByteOrder.nativeOrder());
+		FloatBuffer xy = region.asFloatBuffer();
+		xy.put(old.mX).put(old.mY);
+		region.position(CHUNK_SIZE * 8);
+		IntBuffer time = region.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+		time.put(old.mTime);
+
+		Chunk c = new Chunk();
+		c.mBaseTime = old.mBaseTime;
+		c.mMappedXY = xy;
+		c.mMappedTime = time;
+		mChunks[mSpilledCount++] = c;
+		mFree = old;
+	}
+
+	// index must be smaller than getSize().
+	public float getX(int index) {
+		final Chunk c = mChunks[index >> CHUNK_SHIFT];
+		return c.mX != null ? c.mX[index & CHUNK_MASK] : c.mMappedXY.get(index & CHUNK_MASK);
+	}
+
+	public float getY(int index) {
+		final Chunk c = mChunks[index >> CHUNK_SHIFT];
+		return c.mY != null ? c.mY[index & CHUNK_MASK] : c.mMappedXY.get(CHUNK_SIZE + (index & CHUNK_MASK));
+	}
+
+	public long getTime(int index) {
+		final Chunk c = mChunks[index >> CHUNK_SHIFT];
+		return c.mBaseTime + (c.mTime != null ? c.mTime[index & CHUNK_MASK] : c.mMappedTime.get(index & CHUNK_MASK));
+	}
+
+	/**
+	 * Copy count samples from start, chunk by chunk.
+	 *
+	 * @param xy x0, y0, x1, y1, ... from index 0
+	 * @param time from index 0, or null
+	 */
+	public void read(int start, int count, float[] xy, long[] time) {
+		if (start < 0 || count < 0 || start + count > mSize)
+			throw new IndexOutOfBoundsException("start "+start+" count "+count+" size "+mSize);
+		int i = 0;
+		while (i < count) {
+			final int index = start + i;
+			final Chunk c = mChunks[index >> CHUNK_SHIFT];
+			final int from = index & CHUNK_MASK;
+			final int n = Math.min(count - i, CHUNK_SIZE - from);
+			if (c.mX != null) {
+				for (int k=0; k<n; k++) {
+					xy[(i + k) << 1] = c.mX[from + k];
+					xy[((i + k) << 1) + 1] = c.mY[from + k];
+				}
+				if (time != null) {
+					for (int k=0; k<n; k++)
+						time[i + k] = c.mBaseTime + c.mTime[from + k];
+				}
+			} else {
+				final FloatBuffer mapped = c.mMappedXY;
+				for (int k=0; k<n; k++) {
+					xy[(i + k) << 1] = mapped.get(from + k);
+					xy[((i + k) << 1) + 1] = mapped.get(CHUNK_SIZE + from + k);
+				}
+				if (time != null) {
+					for (int k=0; k<n; k++)
+						time[i + k] = c.mBaseTime + c.mMappedTime.get(from + k);
+				}
+			}
+			i += n;
+		}
+	}
+}
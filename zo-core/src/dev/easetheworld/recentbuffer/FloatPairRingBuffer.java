@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.recentbuffer;
+
+/**
+ * {@link RecentBuffer} specialized for (x, y) float pairs.
+ * Pairs are stored interleaved in one float array whose capacity is a power of two,
+ * so indexing is a mask instead of a modulo and adding a pair never allocates.
+ */
+public class FloatPairRingBuffer {
+	private final float[] mData; // x0, y0, x1, y1, ...
+	private final int mMask;
+	private final int mMaxSize;
+	private int mHead;
+	private int mSize;
+
+	public FloatPairRingBuffer(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be positive : "+size);
+		int capacity = 1;
+		while (capacity < size)
+			capacity <<= 1;
+		mData = new float[capacity * 2];
+		mMask = capacity - 1;
+		mMaxSize = size;
+		clear();
+	}
+
+	public int getSize() {
+		return mSize;
+	}
+
+	public int getMaxSize() {
+		return mMaxSize;
+	}
+
+	public void clear() {
+		mHead = -1;
+		mSize = 0;
+	}
+
+	// smaller index is older. index must be smaller than getSize().
+	public float getXFromOldest(int index) {
+		return mData[((mHead - mSize + 1 + index) & mMask) << 1];
+	}
+
+	public float getYFromOldest(int index) {
+		return mData[(((mHead - mSize + 1 + index) & mMask) << 1) + 1];
+	}
+
+	// smaller index is newer. index must be smaller than getSize().
+	public float getX(int index) {
+		return mData[((mHead - index) & mMask) << 1];
+	}
+
+	public float getY(int index) {
+		return mData[(((mHead - index) & mMask) << 1) + 1];
+	}
+
+	// move forward and overwrite the oldest pair if full.
+	public void add(float x, float y) {
+		mHead = (mHead + 1) & mMask;
+		final int i = mHead << 1;
+		mData[i] = x;
+		mData[i + 1] = y;
+		if (mSize < mMaxSize)
+			mSize++;
+	}
+
+	public void removeSince(int index) {
+		if (mSize > index)
+			mSize = index;
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.recentbuffer;
+
+/**
+ * Lock free ring of touch records between one producer thread and one consumer thread.
+ * A record is (type, id, arg, x, y, time) in parallel primitive arrays whose capacity is a power of two,
+ * like {@link FloatPairRingBuffer}. Nothing is allocated after construction.
+ *
+ * The producer puts records and then publishes them all with one volatile write.
+ * The consumer reads the published records by index and then releases them with one volatile write.
+ * Each side only writes its own counter, so no lock or compare-and-set is needed.
+ * The ring never overwrites unreleased records. A full ring makes put fail.
+ */
+public class SampleRing {
+	private final int[] mType;
+	private final int[] mId;
+	private final int[] mArg;
+	private final float[] mX;
+	private final float[] mY;
+	private final long[] mTime;
+	private final int mMask;
+
+	// ever increasing counters, masked when used as index. overflow is fine since only differences are used.
+	private volatile int mPublished; // written by the producer
+	private volatile int mReleased; // written by the consumer
+	private int mWritten; // producer only, put but not published
+	private int mReleasedSeen; // producer only, mReleased when last read. read again only if the ring looks full.
+	private int mRead; // consumer only, same as mReleased without the volatile read
+
+	public SampleRing(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be positive : "+size);
+		int capacity = 1;
+		while (capacity < size)
+			capacity <<= 1;
+		mType = new int[capacity];
+		mId = new int[capacity];
+		mArg = new int[capacity];
+		mX = new float[capacity];
+		mY = new float[capacity];
+		mTime = new long[capacity];
+		mMask = capacity - 1;
+	}
+
+	public int getCapacity() {
+		return mMask + 1;
+	}
+
+	// producer
+
+	/**
+	 * @return number of records that can be put now. Producer only.
+	 */
+	public int getRoom() {
+		mReleasedSeen = mReleased;
+		return getCapacity() - (mWritten - mReleasedSeen);
+	}
+
+	/**
+	 * Write a record. It is not seen by the consumer until publish(). Producer only.
+	 *
+	 * @return false if the ring is full. Nothing is written then.
+	 */
+	public boolean put(int type, int id, int arg, float x, float y, long time) {
+		if (mWritten - mReleasedSeen == getCapacity()) {
+			mReleasedSeen = mReleased;
+			if (mWritten - mReleasedSeen == getCapacity())
+				return false;
+		}
+		final int i = mWritten & mMask;
+		mType[i] = type;
+		mId[i] = id;
+		mArg[i] = arg;
+		mX[i] = x;
+		mY[i] = y;
+		mTime[i] = time;
+		mWritten++;
+		return true;
+	}
+
+	/**
+	 * Make the records put so far visible to the consumer. Producer only.
+	 */
+	public void publish() {
+		mPublished = mWritten;
+	}
+
+	// consumer
+
+	/**
+	 * @return number of published records not released yet. Consumer only.
+	 */
+	public int getAvailable() {
+		return mPublished - mRead;
+	}
+
+	// index is from 0 to getAvailable() - 1, oldest first. consumer only.
+	public int getType(int index) {
+		return mType[(mRead + index) & mMask];
+	}
+
+	public int getId(int index) {
+		return mId[(mRead + index) & mMask];
+	}
+
+	public int getArg(int index) {
+		return mArg[(mRead + index) & mMask];
+	}
+
+	public float getX(int index) {
+		return mX[(mRead + index) & mMask];
+	}
+
+	public float getY(int index) {
+		return mY[(mRead + index) & mMask];
+	}
+
+	public long getTime(int index) {
+		return mTime[(mRead + index) & mMask];
+	}
+
+	/**
+	 * Give the oldest count records back to the producer. Consumer only.
+	 */
+	public void release(int count) {
+		mRead += count;
+		mReleased = mRead;
+	}
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import dev.easetheworld.recentbuffer.SampleRing;
+
+/**
+ * Runs {@link StrokeGestureEngine} and {@link ZOStateMachine} in a thread of its own.
+ * The input thread (the UI thread on Android) only copies samples into a {@link SampleRing},
+ * so its cost per event is bounded whatever the filter, resampler or recognizer does.
+ * Results come back through another ring, and the owner is told once per batch of results
+ * to drain them in its own thread.
+ *
+ * A gesture is known by a token the input thread gives at its down. Results carry the token,
+ * so the input thread can map them to its view even if it has started other gestures since.
+ *
+ * Each side must be used from one thread only. Configure {@link #getEngine()} and
+ * {@link #getStateMachine()} before {@link #start()}, they are used in the recognizer thread after that.
+ */
+public class BackgroundRecognizer implements Runnable {
+
+	public static interface ResultHandler {
+		void onDown(int token);
+		/**
+		 * Consecutive mode O values of a gesture are summed, so they come at most once per drain.
+		 */
+		void onMove(int token, int mode, int value);
+		void onUp(int token);
+		void onClick(int token);
+		void onDirection(int token, int direction);
+		/**
+		 * Position of the last stroke move, in the coordinates of the input. Only the last one of a drain is given.
+		 */
+		void onPosition(int token, float x, float y);
+	}
+
+	private static final int INPUT_SIZE = 1024;
+	private static final int RESULT_SIZE = 512;
+	// room kept for down, up and cancel. moves are dropped before them.
+	private static final int RESERVED_INPUT = 16;
+
+	private static final int INPUT_DOWN = 0;
+	private static final int INPUT_MOVE = 1;
+	private static final int INPUT_UP = 2;
+	private static final int INPUT_CANCEL = 3;
+
+	private static final int RESULT_DOWN = 0;
+	private static final int RESULT_MOVE_Z = 1;
+	private static final int RESULT_MOVE_O = 2;
+	private static final int RESULT_UP = 3;
+	private static final int RESULT_CLICK = 4;
+	private static final int RESULT_DIRECTION = 5;
+	private static final int RESULT_POSITION = 6;
+
+	private final SampleRing mInput = new SampleRing(INPUT_SIZE);
+	private final SampleRing mResults = new SampleRing(RESULT_SIZE);
+	private final Runnable mResultsReady;
+	private final AtomicBoolean mResultsPosted = new AtomicBoolean();
+
+	private final StrokeGestureEngine mEngine;
+	private final ZOStateMachine mStateMachine;
+
+	private volatile Thread mThread;
+	private volatile boolean mQuit;
+	private volatile boolean mWaiting; // the recognizer thread is parked or about to. unpark only then.
+
+	// input thread only
+	private int mDroppedSamples;
+
+	// recognizer thread only
+	private final int[] mTokens = new int[StrokeGestureEngine.MAX_POINTERS];
+	private float[] mBatchXY = new float[64];
+	private long[] mBatchTime = new long[32];
+	private int mBatchCount;
+	private int mBatchPointerId = -1;
+
+	/**
+	 * @param touchSlop distance in pixels a touch can wander before it is a stroke.
+	 * @param distanceThreshold distance in pixels for one value in mode O.
+	 * @param resultsReady called in the recognizer thread when results are waiting and the last call is drained.
+	 * It should make the owner call {@link #drainResults(ResultHandler)} in its thread, like Handler.post.
+	 */
+	public BackgroundRecognizer(float touchSlop, float distanceThreshold, Runnable resultsReady) {
+		mResultsReady = resultsReady;
+		mStateMachine = new ZOStateMachine(distanceThreshold, mStateCallback);
+		mEngine = new StrokeGestureEngine(touchSlop, mStrokeListener);
+	}
+
+	public StrokeGestureEngine getEngine() {
+		return mEngine;
+	}
+
+	public ZOStateMachine getStateMachine() {
+		return mStateMachine;
+	}
+
+	public synchronized void start() {
+		if (mThread != null && !mQuit)
+			return;
+		if (mThread != null) { // still quitting. one consumer at a time.
+			try {
+				mThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		mQuit = false;
+		mThread = new Thread(this, "BackgroundRecognizer");
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Stop the recognizer thread after the samples it has. Results not drained yet are kept.
+	 */
+	public synchronized void quit() {
+		if (mThread == null || mQuit)
+			return;
+		mQuit = true;
+		LockSupport.unpark(mThread); // always, it may be parked without mWaiting seen here
+	}
+
+	// input thread
+
+	/**
+	 * @param token id of the gesture in the results, 0 to 65535
+	 * @param mode mode of the gesture. See {@link ZOStateMachine#setMode(int)}.
+	 * @return false if the sample is dropped because the recognizer is too far behind.
+	 */
+	public boolean touchDown(int pointerId, int token, int mode, float x, float y, long time) {
+		return put(INPUT_DOWN, pointerId, token | (mode << 16), x, y, time);
+	}
+
+	/**
+	 * @return true if count move samples can be put. Check it once per event so an event is not cut in the middle.
+	 * If false, drop the moves of the event. The next event has the current position again.
+	 */
+	public boolean hasRoomForMoves(int count) {
+		if (mInput.getRoom() - count >= RESERVED_INPUT)
+			return true;
+		mDroppedSamples += count;
+		return false;
+	}
+
+	public boolean touchMove(int pointerId, float x, float y, long time) {
+		return put(INPUT_MOVE, pointerId, 0, x, y, time);
+	}
+
+	public boolean touchUp(int pointerId, float x, float y, long time) {
+		return put(INPUT_UP, pointerId, 0, x, y, time);
+	}
+
+	/**
+	 * The gesture of the pointer ends without a click. Its onUp still comes.
+	 */
+	public boolean touchCancel(int pointerId, float x, float y, long time) {
+		return put(INPUT_CANCEL, pointerId, 0, x, y, time);
+	}
+
+	/**
+	 * Hand the samples put so far to the recognizer thread. Call it once per event.
+	 */
+	public void publish() {
+		mInput.publish();
+		if (mWaiting) {
+			final Thread thread = mThread;
+			if (thread != null)
+				LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * @return samples dropped because the input ring was full.
+	 */
+	public int getDroppedSamples() {
+		return mDroppedSamples;
+	}
+
+	private boolean put(int type, int pointerId, int arg, float x, float y, long time) {
+		if (mInput.put(type, pointerId, arg, x, y, time))
+			return true;
+		mDroppedSamples++;
+		return false;
+	}
+
+	// owner thread
+
+	/**
+	 * Give the waiting results to the handler, oldest first, with consecutive mode O values
+	 * and positions of a gesture merged.
+	 */
+	public void drainResults(ResultHandler handler) {
+		mResultsPosted.set(false); // before reading, so results published after this are posted again.
+		final SampleRing results = mResults;
+		final int count = results.getAvailable();
+		int sumToken = -1;
+		int sum = 0;
+		int positionToken = -1;
+		float positionX = 0f;
+		float positionY = 0f;
+		for (int i = 0; i < count; i++) {
+			final int type = results.getType(i);
+			final int token = results.getId(i);
+			if (type == RESULT_MOVE_O && (sumToken == -1 || sumToken == token)) {
+				sumToken = token;
+				sum += results.getArg(i);
+				continue;
+			}
+			if (type == RESULT_POSITION) {
+				positionToken = token;
+				positionX = results.getX(i);
+				positionY = results.getY(i);
+				continue;
+			}
+			if (sumToken != -1) {
+				handler.onMove(sumToken, ZOStateMachine.MODE_O, sum);
+				sumToken = -1;
+				sum = 0;
+			}
+			switch (type) {
+			case RESULT_MOVE_O: // another gesture
+				sumToken = token;
+				sum = results.getArg(i);
+				break;
+			case RESULT_DOWN:
+				handler.onDown(token);
+				break;
+			case RESULT_MOVE_Z:
+				handler.onMove(token, ZOStateMachine.MODE_Z, results.getArg(i));
+				break;
+			case RESULT_UP:
+				if (positionToken == token) // the position of an ended gesture is not needed
+					positionToken = -1;
+				handler.onUp(token);
+				break;
+			case RESULT_CLICK:
+				handler.onClick(token);
+				break;
+			case RESULT_DIRECTION:
+				handler.onDirection(token, results.getArg(i));
+				break;
+			}
+		}
+		if (sumToken != -1)
+			handler.onMove(sumToken, ZOStateMachine.MODE_O, sum);
+		if (positionToken != -1)
+			handler.onPosition(positionToken, positionX, positionY);
+		results.release(count);
+	}
+
+	// recognizer thread
+
+	@Override
+	public void run() {
+		final SampleRing input = mInput;
+		while (!mQuit) {
+			final int count = input.getAvailable();
+			if (count == 0) {
+				mWaiting = true;
+				if (input.getAvailable() == 0 && !mQuit) // publish() sees mWaiting if this does not see its samples
+					LockSupport.park(this);
+				mWaiting = false;
+				continue;
+			}
+			for (int i = 0; i < count; i++)
+				process(input, i);
+			flushBatch();
+			input.release(count);
+			mResults.publish();
+			if (mResultsPosted.compareAndSet(false, true))
+				mResultsReady.run();
+		}
+	}
+
+	private void process(SampleRing input, int i) {
+		final int type = input.getType(i);
+		final int pointerId = input.getId(i);
+		if (type == INPUT_MOVE) {
+			if (pointerId != mBatchPointerId)
+				flushBatch();
+			if (mBatchCount == mBatchTime.length) {
+				float[] xy = new float[mBatchXY.length * 2];
+				System.arraycopy(mBatchXY, 0, xy, 0, mBatchCount * 2);
+				mBatchXY = xy;
+				long[] t = new long[mBatchTime.length * 2];
+				System.arraycopy(mBatchTime, 0, t, 0, mBatchCount);
+				mBatchTime = t;
+			}
+			mBatchPointerId = pointerId;
+			mBatchXY[mBatchCount * 2] = input.getX(i);
+			mBatchXY[mBatchCount * 2 + 1] = input.getY(i);
+			mBatchTime[mBatchCount] = input.getTime(i);
+			mBatchCount++;
+			return;
+		}
+		flushBatch();
+		switch (type) {
+		case INPUT_DOWN:
+			final int arg = input.getArg(i);
+			mTokens[pointerId] = arg & 0xffff;
+			mStateMachine.setMode(arg >>> 16);
+			mEngine.touchDown(pointerId, input.getX(i), input.getY(i), input.getTime(i));
+			break;
+		case INPUT_UP:
+			mEngine.touchUp(pointerId, input.getX(i), input.getY(i), input.getTime(i));
+			break;
+		case INPUT_CANCEL:
+			mEngine.touchCancel(pointerId, input.getX(i), input.getY(i), input.getTime(i));
+			break;
+		}
+	}
+
+	// all the moves of a pointer in a row go in one touchMoves, even across events if the recognizer is behind.
+	private void flushBatch() {
+		if (mBatchCount > 0)
+			mEngine.touchMoves(mBatchPointerId, mBatchXY, mBatchTime, mBatchCount);
+		mBatchCount = 0;
+		mBatchPointerId = -1;
+	}
+
+	private void putResult(int type, int arg, float x, float y) {
+		final int token = mTokens[mStateMachine.getPointerId()];
+		while (!mResults.put(type, token, arg, x, y, 0L)) {
+			// the owner is behind. show what we have and wait for it.
+			mResults.publish();
+			if (mResultsPosted.compareAndSet(false, true))
+				mResultsReady.run();
+			LockSupport.parkNanos(this, 1000000L);
+			if (mQuit)
+				return;
+		}
+	}
+
+	private final StrokeGestureEngine.OnPredictedStrokeListener mStrokeListener = new StrokeGestureEngine.OnPredictedStrokeListener() {
+
+		@Override
+		public void onDown(float x, float y, long time) {
+			final int pointerId = mEngine.getPointerId();
+			mStateMachine.setSpeedSource(pointerId, mEngine.getStrokeTracker(pointerId));
+			mStateMachine.onDown(pointerId, x, y, time);
+		}
+
+		@Override
+		public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+			mStateMachine.onStrokeStart(mEngine.getPointerId(), x, y, time, index, directionX, directionY);
+		}
+
+		@Override
+		public void onStrokeStartPredicted(float x, float y, long time, int index, float directionX, float directionY) {
+			mStateMachine.onStrokeStartPredicted(mEngine.getPointerId(), x, y, time, index, directionX, directionY);
+		}
+
+		@Override
+		public void onStrokePredictionCancel(float x, float y, long time, int index) {
+			mStateMachine.onStrokePredictionCancel(mEngine.getPointerId(), x, y, time, index);
+		}
+
+		@Override
+		public void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length) {
+			mStateMachine.onStrokeMove(mEngine.getPointerId(), x, y, time, distanceX, distanceY, length);
+			putResult(RESULT_POSITION, 0, x, y);
+		}
+
+		@Override
+		public void onUp(float x, float y, long time) {
+			mStateMachine.onUp(mEngine.getPointerId(), x, y, time);
+		}
+
+		@Override
+		public boolean onSingleTapUp(float x, float y, long time) {
+			return mStateMachine.onSingleTapUp(mEngine.getPointerId(), x, y, time);
+		}
+	};
+
+	private final ZOStateMachine.Callback mStateCallback = new ZOStateMachine.Callback() {
+
+		@Override
+		public void onDown() {
+			putResult(RESULT_DOWN, 0, 0f, 0f);
+		}
+
+		@Override
+		public void onMove(int mode, int value) {
+			putResult(mode == ZOStateMachine.MODE_Z ? RESULT_MOVE_Z : RESULT_MOVE_O, value, 0f, 0f);
+		}
+
+		@Override
+		public void onUp() {
+			putResult(RESULT_UP, 0, 0f, 0f);
+		}
+
+		@Override
+		public void onClick() {
+			putResult(RESULT_CLICK, 0, 0f, 0f);
+		}
+
+		@Override
+		public void onDirection(int direction) {
+			putResult(RESULT_DIRECTION, direction, 0f, 0f);
+		}
+	};
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Mode O acceleration like pointer acceleration. Maps stroke speed to a multiplier of the distance.
+ * Speed is in values per second at gain 1, (pixels per second / distance threshold)
+ * so a curve works the same on any density.
+ * Gain 1 is the plain distance to value conversion.
+ */
+public interface GainCurve {
+
+	/**
+	 * @param speed values per second at gain 1. Not negative.
+	 * @return multiplier of the distance. Should be 1 or more at slow speeds to keep precision.
+	 */
+	float getGain(float speed);
+
+	/**
+	 * Gain 1 until minSpeed, grows linearly up to maxGain at maxSpeed, then stays.
+	 */
+	public static class Linear implements GainCurve {
+		private final float mMinSpeed;
+		private final float mMaxSpeed;
+		private final float mMaxGain;
+
+		public Linear(float minSpeed, float maxSpeed, float maxGain) {
+			if (maxSpeed <= minSpeed)
+				throw new IllegalArgumentException("maxSpeed must be greater than minSpeed");
+			mMinSpeed = minSpeed;
+			mMaxSpeed = maxSpeed;
+			mMaxGain = maxGain;
+		}
+
+		@Override
+		public float getGain(float speed) {
+			if (speed <= mMinSpeed)
+				return 1f;
+			if (speed >= mMaxSpeed)
+				return mMaxGain;
+			return 1f + (mMaxGain - 1f) * (speed - mMinSpeed) / (mMaxSpeed - mMinSpeed);
+		}
+	}
+
+	/**
+	 * Gain (speed / minSpeed) ^ exponent above minSpeed, limited to maxGain. Gain 1 below minSpeed.
+	 */
+	public static class Power implements GainCurve {
+		private final float mMinSpeed;
+		private final float mExponent;
+		private final float mMaxGain;
+
+		public Power(float minSpeed, float exponent, float maxGain) {
+			if (minSpeed <= 0)
+				throw new IllegalArgumentException("minSpeed must be positive : "+minSpeed);
+			mMinSpeed = minSpeed;
+			mExponent = exponent;
+			mMaxGain = maxGain;
+		}
+
+		@Override
+		public float getGain(float speed) {
+			if (speed <= mMinSpeed)
+				return 1f;
+			return Math.min(mMaxGain, (float)Math.pow(speed / mMinSpeed, mExponent));
+		}
+	}
+
+	/**
+	 * Gains at the given speeds, linearly interpolated between them.
+	 * Below the first speed it is the first gain, above the last speed it is the last gain.
+	 */
+	public static class Piecewise implements GainCurve {
+		private final float[] mSpeeds;
+		private final float[] mGains;
+
+		/**
+		 * @param speeds increasing speeds
+		 * @param gains gain at each speed
+		 */
+		public Piecewise(float[] speeds, float[] gains) {
+			if (speeds.length == 0 || speeds.length != gains.length)
+				throw new IllegalArgumentException("speeds and gains must have the same non zero length");
+			for (int i = 1; i < speeds.length; i++) {
+				if (speeds[i] <= speeds[i - 1])
+					throw new IllegalArgumentException("speeds must be increasing");
+			}
+			mSpeeds = speeds.clone();
+			mGains = gains.clone();
+		}
+
+		@Override
+		public float getGain(float speed) {
+			final float[] speeds = mSpeeds;
+			if (speed <= speeds[0])
+				return mGains[0];
+			for (int i = 1; i < speeds.length; i++) {
+				if (speed < speeds[i])
+					return mGains[i - 1] + (mGains[i] - mGains[i - 1]) * (speed - speeds[i - 1]) / (speeds[i] - speeds[i - 1]);
+			}
+			return mGains[speeds.length - 1];
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Feeds a recorded {@link GestureTrace} through the recognizer as fast as possible.
+ * Historical samples are batched with their move sample like {@link StrokeGestureDetector} does,
+ * so the replay sees the same calls as the device did.
+ *
+ * Run from the command line to replay trace files through StrokeGestureEngine and ZOStateMachine :
+ * java -cp zo-core.jar dev.easetheworld.ui.zo.GestureReplay [-slop pixels] [-threshold pixels] [-mode z|o|zo] [-gain linear|power] [-predict ms] [-filter oneeuro|kalman] [-window samples] [-step ms | -spacing pixels] file...
+ * Every column comes from the configured engine, so strokes and predictions see the filtered and resampled samples.
+ * With -predict, the z column should not change. The prediction columns are added.
+ */
+public class GestureReplay {
+
+	private float[] mBatchXY = new float[64];
+	private long[] mBatchTime = new long[32];
+
+	/**
+	 * Feed every sample to the engine. Each move with its historical samples goes in one touchMoves call.
+	 */
+	public void replay(GestureTrace trace, StrokeGestureEngine engine) {
+		final int count = trace.getCount();
+		int batch = 0;
+		for (int i = 0; i < count; i++) {
+			final int action = trace.getAction(i);
+			if (action == GestureTrace.ACTION_MOVE) {
+				if (batch == mBatchTime.length) {
+					float[] xy = new float[mBatchXY.length * 2];
+					System.arraycopy(mBatchXY, 0, xy, 0, batch * 2);
+					mBatchXY = xy;
+					long[] t = new long[mBatchTime.length * 2];
+					System.arraycopy(mBatchTime, 0, t, 0, batch);
+					mBatchTime = t;
+				}
+				mBatchXY[batch * 2] = trace.getX(i);
+				mBatchXY[batch * 2 + 1] = trace.getY(i);
+				mBatchTime[batch] = trace.getTime(i);
+				batch++;
+				if (!trace.isHistorical(i)) {
+					engine.touchMoves(mBatchXY, mBatchTime, batch);
+					batch = 0;
+				}
+				continue;
+			}
+			if (batch > 0) { // historical samples without their move. should not happen.
+				engine.touchMoves(mBatchXY, mBatchTime, batch);
+				batch = 0;
+			}
+			switch (action) {
+			case GestureTrace.ACTION_DOWN:
+				engine.touchDown(trace.getX(i), trace.getY(i), trace.getTime(i));
+				break;
+			case GestureTrace.ACTION_UP:
+				engine.touchUp(trace.getX(i), trace.getY(i), trace.getTime(i));
+				break;
+			case GestureTrace.ACTION_CANCEL:
+				engine.touchCancel(trace.getX(i), trace.getY(i), trace.getTime(i));
+				break;
+			}
+		}
+		if (batch > 0)
+			engine.touchMoves(mBatchXY, mBatchTime, batch);
+	}
+
+	/**
+	 * Engine listener which counts the stroke starts and how the predictions ended, and passes every callback
+	 * to the target. The counts come from the same samples as the target sees, after the filter and the resampler.
+	 */
+	public static class StrokeCounter implements StrokeGestureEngine.OnPredictedStrokeListener {
+		private final StrokeGestureEngine.OnPredictedStrokeListener mTarget;
+		private int mStarts;
+		private int mPredictions;
+		private int mConfirmed;
+		private int mCancelled; // turned, or up before the start
+		private long mSaved; // ms from the confirmed predictions to their starts
+		private long mPredictedTime = -1;
+
+		public StrokeCounter(StrokeGestureEngine.OnPredictedStrokeListener target) {
+			mTarget = target;
+		}
+
+		public int getStarts() {
+			return mStarts;
+		}
+
+		public int getPredictions() {
+			return mPredictions;
+		}
+
+		public int getConfirmed() {
+			return mConfirmed;
+		}
+
+		public int getCancelled() {
+			return mCancelled;
+		}
+
+		public long getSaved() {
+			return mSaved;
+		}
+
+		// call after the replay, the last gesture may have no up.
+		public void end() {
+			if (mPredictedTime != -1)
+				mCancelled++;
+			mPredictedTime = -1;
+		}
+
+		@Override
+		public void onDown(float x, float y, long time) {
+			end();
+			mTarget.onDown(x, y, time);
+		}
+
+		@Override
+		public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+			mStarts++;
+			if (mPredictedTime != -1) {
+				mConfirmed++;
+				mSaved += time - mPredictedTime;
+				mPredictedTime = -1;
+			}
+			mTarget.onStrokeStart(x, y, time, index, directionX, directionY);
+		}
+
+		@Override
+		public void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length) {
+			mTarget.onStrokeMove(x, y, time, distanceX, distanceY, length);
+		}
+
+		@Override
+		public void onUp(float x, float y, long time) {
+			mTarget.onUp(x, y, time);
+		}
+
+		@Override
+		public boolean onSingleTapUp(float x, float y, long time) {
+			return mTarget.onSingleTapUp(x, y, time);
+		}
+
+		@Override
+		public void onStrokeStartPredicted(float x, float y, long time, int index, float directionX, float directionY) {
+			mPredictions++;
+			mPredictedTime = time;
+			mTarget.onStrokeStartPredicted(x, y, time, index, directionX, directionY);
+		}
+
+		@Override
+		public void onStrokePredictionCancel(float x, float y, long time, int index) {
+			mCancelled++;
+			mPredictedTime = -1;
+			mTarget.onStrokePredictionCancel(x, y, time, index);
+		}
+	}
+
+	// sums of the state machine output of one replay
+	private static class Summary implements ZOStateMachine.Callback {
+		int downs;
+		int clicks;
+		int moves;
+		int zSum;
+		int oSum;
+		int directionChanges;
+
+		@Override
+		public void onDown() {
+			downs++;
+		}
+
+		@Override
+		public void onMove(int mode, int value) {
+			moves++;
+			if (mode == ZOStateMachine.MODE_Z)
+				zSum += value;
+			else
+				oSum += value;
+		}
+
+		@Override
+		public void onUp() {
+		}
+
+		@Override
+		public void onClick() {
+			clicks++;
+		}
+
+		@Override
+		public void onDirection(int direction) {
+			directionChanges++;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		float slop = 16;
+		float threshold = 40;
+		int mode = ZOStateMachine.MODE_ZO;
+		GainCurve gain = null;
+		long predict = 0;
+		TouchFilter filter = null;
+		int window = 0;
+		TouchResampler resampler = null;
+		int i = 0;
+		for (; i < args.length - 1 && args[i].startsWith("-"); i += 2) {
+			if (args[i].equals("-slop"))
+				slop = Float.parseFloat(args[i + 1]);
+			else if (args[i].equals("-threshold"))
+				threshold = Float.parseFloat(args[i + 1]);
+			else if (args[i].equals("-mode"))
+				mode = args[i + 1].equals("z") ? ZOStateMachine.MODE_Z : args[i + 1].equals("o") ? ZOStateMachine.MODE_O : ZOStateMachine.MODE_ZO;
+			else if (args[i].equals("-gain"))
+				gain = args[i + 1].equals("linear") ? new GainCurve.Linear(5f, 50f, 10f) : args[i + 1].equals("power") ? new GainCurve.Power(5f, 1.5f, 30f) : null;
+			else if (args[i].equals("-predict"))
+				predict = Long.parseLong(args[i + 1]);
+			else if (args[i].equals("-step"))
+				resampler = new TouchResampler.Time(Float.parseFloat(args[i + 1]));
+			else if (args[i].equals("-spacing"))
+				resampler = new TouchResampler.Distance(Float.parseFloat(args[i + 1]));
+			else if (args[i].equals("-window"))
+				window = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-filter"))
+				filter = args[i + 1].equals("oneeuro") ? new TouchFilter.OneEuro() : args[i + 1].equals("kalman") ? new TouchFilter.Kalman() : null;
+			else
+				throw new IllegalArgumentException("unknown option : "+args[i]);
+		}
+		if (i == args.length) {
+			System.err.println("usage : GestureReplay [-slop pixels] [-threshold pixels] [-mode z|o|zo] [-gain linear|power] [-predict ms] [-filter oneeuro|kalman] [-window samples] [-step ms | -spacing pixels] file...");
+			System.exit(1);
+		}
+		System.out.println("file\tsamples\tdowns\tstrokes\tclicks\tmoves\tz\to\tns/sample"
+				+(predict > 0 ? "\tpredicted\tconfirmed\tcancelled\tms saved" : ""));
+		GestureReplay replay = new GestureReplay();
+		for (; i < args.length; i++) {
+			GestureTrace trace = GestureTrace.open(new File(args[i]));
+			Summary summary = new Summary();
+			ZOStateMachine stateMachine = new ZOStateMachine(threshold, summary);
+			stateMachine.setMode(mode);
+			stateMachine.setGainCurve(gain);
+			StrokeCounter counter = new StrokeCounter(stateMachine);
+			StrokeGestureEngine engine = new StrokeGestureEngine(slop, counter);
+			engine.setPredictionHorizon(predict);
+			engine.setFilter(filter);
+			engine.setResampler(resampler);
+			if (window > 0)
+				engine.setTurnWindow(window);
+			stateMachine.setSpeedSource(engine.getStrokeTracker());
+			long start = System.nanoTime();
+			replay.replay(trace, engine);
+			long elapsed = System.nanoTime() - start;
+			counter.end();
+			String prediction = "";
+			if (predict > 0) {
+				prediction = "\t"+counter.getPredictions()+"\t"+counter.getConfirmed()+"\t"+counter.getCancelled()
+						+"\t"+(counter.getConfirmed() == 0 ? 0f : (float)counter.getSaved() / counter.getConfirmed());
+			}
+			System.out.println(args[i]+"\t"+trace.getCount()+"\t"+summary.downs+"\t"+counter.getStarts()+"\t"+summary.clicks
+					+"\t"+summary.moves+"\t"+summary.zSum+"\t"+summary.oSum+"\t"+(trace.getCount() == 0 ? 0 : elapsed / trace.getCount())
+					+prediction);
+		}
+	}
+}
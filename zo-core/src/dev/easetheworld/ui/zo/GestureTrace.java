@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Recorded touch session read through a memory mapped file. Samples are read in place, not copied.
+ * Written by {@link GestureTraceWriter}.
+ *
+ * File format (little endian) :
+ * int magic 'ZOGT', int version, int record size, int reserved, long base time, then the records.
+ * Record : int action (with flags), int time since base time, float x, float y.
+ * Sample count is (file length - header size) / record size.
+ */
+public class GestureTrace {
+
+	// same values as MotionEvent
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MOVE = 2;
+	public static final int ACTION_CANCEL = 3;
+	public static final int ACTION_MASK = 0xff;
+	/** the sample is a historical one of the next non historical move. */
+	public static final int FLAG_HISTORICAL = 0x100;
+
+	static final int MAGIC = 0x54474f5a; // "ZOGT" in little endian
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int RECORD_SIZE = 16;
+
+	private final ByteBuffer mBuffer;
+	private final long mBaseTime;
+	private final int mCount;
+
+	private GestureTrace(ByteBuffer buffer) throws IOException {
+		mBuffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (mBuffer.limit() < HEADER_SIZE || mBuffer.getInt(0) != MAGIC)
+			throw new IOException("not a gesture trace");
+		int version = mBuffer.getInt(4);
+		if (version != VERSION)
+			throw new IOException("unknown gesture trace version : "+version);
+		if (mBuffer.getInt(8) != RECORD_SIZE)
+			throw new IOException("unknown record size");
+		mBaseTime = mBuffer.getLong(16);
+		mCount = (mBuffer.limit() - HEADER_SIZE) / RECORD_SIZE;
+	}
+
+	/**
+	 * Map the file. The mapping stays valid after this returns.
+	 */
+	public static GestureTrace open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return new GestureTrace(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Read a trace already in memory, for example one written to a ByteArrayOutputStream.
+	 */
+	public static GestureTrace wrap(byte[] data) throws IOException {
+		return new GestureTrace(ByteBuffer.wrap(data));
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public int getAction(int index) {
+		return mBuffer.getInt(HEADER_SIZE + index * RECORD_SIZE) & ACTION_MASK;
+	}
+
+	public boolean isHistorical(int index) {
+		return (mBuffer.getInt(HEADER_SIZE + index * RECORD_SIZE) & FLAG_HISTORICAL) != 0;
+	}
+
+	public long getTime(int index) {
+		return mBaseTime + mBuffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 4);
+	}
+
+	public float getX(int index) {
+		return mBuffer.getFloat(HEADER_SIZE + index * RECORD_SIZE + 8);
+	}
+
+	public float getY(int index) {
+		return mBuffer.getFloat(HEADER_SIZE + index * RECORD_SIZE + 12);
+	}
+}
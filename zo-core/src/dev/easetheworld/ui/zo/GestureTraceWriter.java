@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes touch samples to a {@link GestureTrace} file as they come.
+ * Samples are staged in a fixed buffer and written in blocks, so add() does not allocate.
+ */
+public class GestureTraceWriter {
+
+	private static final int BLOCK_RECORDS = 256;
+
+	private final OutputStream mOut;
+	private final ByteBuffer mBlock;
+	private boolean mHeaderWritten;
+	private long mBaseTime;
+	private int mCount;
+
+	public GestureTraceWriter(File file) throws IOException {
+		this(new FileOutputStream(file));
+	}
+
+	public GestureTraceWriter(OutputStream out) {
+		mOut = out;
+		mBlock = ByteBuffer.allocate(Math.max(GestureTrace.HEADER_SIZE, BLOCK_RECORDS * GestureTrace.RECORD_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @param action GestureTrace.ACTION_*, with FLAG_HISTORICAL if the sample is a historical one of a move event.
+	 * @param time event time in milliseconds
+	 */
+	public void add(int action, long time, float x, float y) throws IOException {
+		if (!mHeaderWritten) {
+			mBaseTime = time;
+			mBlock.putInt(GestureTrace.MAGIC).putInt(GestureTrace.VERSION).putInt(GestureTrace.RECORD_SIZE).putInt(0).putLong(time);
+			mHeaderWritten = true;
+		}
+		if (mBlock.remaining() < GestureTrace.RECORD_SIZE)
+			flush();
+		mBlock.putInt(action).putInt((int)(time - mBaseTime)).putFloat(x).putFloat(y);
+		mCount++;
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public void flush() throws IOException {
+		mOut.write(mBlock.array(), 0, mBlock.position());
+		mBlock.clear();
+		mOut.flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			mOut.close();
+		}
+	}
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Platform independent part of {@link StrokeGestureDetector}.
+ * Feed raw touch samples and get stroke callbacks with plain numbers.
+ */
+public class StrokeGestureEngine {
+
+    public static interface OnStrokeListener {
+
+        /**
+         * Notified for every down sample. All other callbacks are preceded by this.
+         */
+        void onDown(float x, float y, long time);
+
+		/**
+		 * Notified when a stroke starts.
+		 *
+		 * @param index stroke index.
+		 * @param directionX x-direction of this stroke
+		 * @param directionY y-direction of this stroke
+		 */
+		void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY);
+
+		/**
+		 * Notified when a stroke moves.
+		 * With {@link StrokeGestureEngine#touchMoves(float[], long[], int)} this covers all the moves in the batch
+		 * until the next stroke start, and x, y, time are the last of them.
+		 *
+		 * @param distanceX The distance along the X axis since the last call to onStrokeMove.
+		 * @param distanceY The distance along the Y axis since the last call to onStrokeMove.
+		 * @param length The path length since the last call to onStrokeMove. Not the length of (distanceX, distanceY).
+		 */
+		void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length);
+
+        /**
+         * Notified for every up sample except onSingleTapUp returns true.
+         */
+        void onUp(float x, float y, long time);
+
+        /**
+         * Notified at up sample if no stroke has started since down.
+         *
+         * @return true if the event is consumed, else false. If true, onUp will not be called.
+         */
+        boolean onSingleTapUp(float x, float y, long time);
+    }
+
+    /**
+     * Listener that also gets the predicted stroke starts of {@link StrokeGestureEngine#setPredictionHorizon(long)}.
+     * A prediction is followed by onStrokeStart with the same index (confirm),
+     * or by onStrokePredictionCancel, or by onUp.
+     */
+    public static interface OnPredictedStrokeListener extends OnStrokeListener {
+
+    	/**
+    	 * Notified when the stroke is expected to start soon. The index is the one of the coming onStrokeStart.
+    	 *
+    	 * @param directionX predicted x-direction of the stroke
+    	 * @param directionY predicted y-direction of the stroke
+    	 */
+    	void onStrokeStartPredicted(float x, float y, long time, int index, float directionX, float directionY);
+
+    	/**
+    	 * Notified when the touch turned before the predicted stroke started.
+    	 * Also notified before onSingleTapUp or onUp if the predicted stroke never started.
+    	 */
+    	void onStrokePredictionCancel(float x, float y, long time, int index);
+    }
+
+    /**
+     * Pointer ids from 0 to MAX_POINTERS - 1 are tracked. Others are ignored,
+     * as are the moves, ups and cancels of a pointer which is not down.
+     */
+    public static final int MAX_POINTERS = 10;
+
+    private final OnStrokeListener mListener;
+    private final OnPredictedStrokeListener mPredictedListener; // mListener if it is, else null
+
+    private final float mTouchSlop;
+
+    // per pointer state, indexed by pointer id. a tracker is made at the first down of its pointer.
+    private final StrokeTracker[] mStrokeTracker = new StrokeTracker[MAX_POINTERS];
+
+    // last position
+    private final float[] mLastMotionX = new float[MAX_POINTERS];
+    private final float[] mLastMotionY = new float[MAX_POINTERS];
+
+    // bit per pointer id, set from the down to the up or cancel
+    private int mDownPointers;
+
+    // single tap
+    private final boolean[] mIsSingleTap = new boolean[MAX_POINTERS];
+
+    private final int[] mStrokeIndex = new int[MAX_POINTERS];
+
+    private long mPredictionHorizon;
+    private int mTurnWindow;
+    private float mTurnAngle;
+    private final boolean[] mPredicted = new boolean[MAX_POINTERS];
+
+    // filter given to setFilter, and one instance of it per pointer, made at the first down of the pointer.
+    private TouchFilter mFilter;
+    private final TouchFilter[] mFilters = new TouchFilter[MAX_POINTERS];
+    private float[] mFilteredXY = new float[64];
+
+    // same for the resampler
+    private TouchResampler mResampler;
+    private final TouchResampler[] mResamplers = new TouchResampler[MAX_POINTERS];
+    private final float[] mSingleXY = new float[2];
+    private final long[] mSingleTime = new long[1];
+
+    // pointer of the current callback
+    private int mPointerId;
+
+    /**
+     * @param touchSlop distance in pixels a touch can wander before it is a stroke.
+     * @param listener the listener invoked for all the callbacks, this must not be null.
+     *
+     * @throws NullPointerException if {@code listener} is null.
+     */
+    public StrokeGestureEngine(float touchSlop, OnStrokeListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("OnStrokeListener must not be null");
+        }
+        mListener = listener;
+        mPredictedListener = listener instanceof OnPredictedStrokeListener ? (OnPredictedStrokeListener)listener : null;
+        mTouchSlop = touchSlop;
+        mStrokeTracker[0] = new StrokeTracker(touchSlop);
+        mTurnWindow = mStrokeTracker[0].getTurnWindow();
+        mTurnAngle = mStrokeTracker[0].getTurnAngle();
+    }
+
+    /**
+     * @return tracker of pointer 0
+     */
+    public StrokeTracker getStrokeTracker() {
+    	return mStrokeTracker[0];
+    }
+
+    /**
+     * @return tracker of the pointer, made if it is not yet.
+     */
+    public StrokeTracker getStrokeTracker(int pointerId) {
+    	StrokeTracker tracker = mStrokeTracker[pointerId];
+    	if (tracker == null) {
+    		tracker = new StrokeTracker(mTouchSlop);
+    		tracker.setPredictionHorizon(mPredictionHorizon);
+    		tracker.setTurnWindow(mTurnWindow);
+    		tracker.setTurnAngle(mTurnAngle);
+    		mStrokeTracker[pointerId] = tracker;
+    	}
+    	return tracker;
+    }
+
+    /**
+     * Report stroke starts that the velocity says will happen within horizon milliseconds,
+     * so the listener can respond before the touch leaves the touch slop.
+     * Only used if the listener is an {@link OnPredictedStrokeListener}. 0 to turn off, which is the default.
+     *
+     * @see StrokeTracker#setPredictionHorizon(long)
+     */
+    public void setPredictionHorizon(long horizon) {
+    	mPredictionHorizon = mPredictedListener != null ? horizon : 0;
+    	for (int i = 0; i < MAX_POINTERS; i++) {
+    		if (mStrokeTracker[i] != null)
+    			mStrokeTracker[i].setPredictionHorizon(mPredictionHorizon);
+    	}
+    }
+
+    /**
+     * Turn window of the trackers of all the pointers. Call it between gestures.
+     *
+     * @see StrokeTracker#setTurnWindow(int)
+     */
+    public void setTurnWindow(int samples) {
+    	if (samples <= 0)
+    		throw new IllegalArgumentException("window must be positive : "+samples);
+    	mTurnWindow = samples;
+    	for (int i = 0; i < MAX_POINTERS; i++) {
+    		if (mStrokeTracker[i] != null)
+    			mStrokeTracker[i].setTurnWindow(samples);
+    	}
+    }
+
+    public int getTurnWindow() {
+    	return mTurnWindow;
+    }
+
+    /**
+     * Turn angle of the trackers of all the pointers.
+     *
+     * @see StrokeTracker#setTurnAngle(float)
+     */
+    public void setTurnAngle(float degrees) {
+    	if (degrees <= 0f || degrees >= 180f)
+    		throw new IllegalArgumentException("angle must be between 0 and 180 : "+degrees);
+    	mTurnAngle = degrees;
+    	for (int i = 0; i < MAX_POINTERS; i++) {
+    		if (mStrokeTracker[i] != null)
+    			mStrokeTracker[i].setTurnAngle(degrees);
+    	}
+    }
+
+    public float getTurnAngle() {
+    	return mTurnAngle;
+    }
+
+    /**
+     * Smooth the move samples before the trackers and the listener see them. null for the raw samples, which is the default.
+     * Down and up samples are not changed. Each pointer gets its own {@link TouchFilter#newInstance()}.
+     * Call it between gestures.
+     */
+    public void setFilter(TouchFilter filter) {
+    	mFilter = filter;
+    	for (int i = 0; i < MAX_POINTERS; i++)
+    		mFilters[i] = null;
+    }
+
+    public TouchFilter getFilter() {
+    	return mFilter;
+    }
+
+    /**
+     * Resample the move samples, after the filter, to a fixed time step or distance before the trackers see them.
+     * null for the samples as they come, which is the default. With a resampler, touchMove is a batch of one sample,
+     * so it may report no move or several starts. Each pointer gets its own {@link TouchResampler#newInstance()}.
+     * Call it between gestures.
+     */
+    public void setResampler(TouchResampler resampler) {
+    	mResampler = resampler;
+    	for (int i = 0; i < MAX_POINTERS; i++)
+    		mResamplers[i] = null;
+    }
+
+    public TouchResampler getResampler() {
+    	return mResampler;
+    }
+
+    /**
+     * @return pointer id of the current callback. Always 0 with the single pointer methods.
+     */
+    public int getPointerId() {
+    	return mPointerId;
+    }
+
+    public void touchDown(float x, float y, long time) {
+    	touchDown(0, x, y, time);
+    }
+
+    public void touchMove(float x, float y, long time) {
+    	touchMove(0, x, y, time);
+    }
+
+    /**
+     * Same as calling touchMove for each sample, but consecutive moves are reported by one onStrokeMove.
+     * Stroke starts are still reported one by one and in order.
+     *
+     * @param xy x0, y0, x1, y1, ... oldest first
+     * @param t time of each sample
+     * @param count number of samples
+     */
+    public void touchMoves(float[] xy, long[] t, int count) {
+    	touchMoves(0, xy, t, count);
+    }
+
+    /**
+     * @return true if the up sample is consumed by onSingleTapUp.
+     */
+    public boolean touchUp(float x, float y, long time) {
+    	return touchUp(0, x, y, time);
+    }
+
+    public void touchCancel(float x, float y, long time) {
+    	touchCancel(0, x, y, time);
+    }
+
+    /**
+     * Down of the given pointer. Each pointer is tracked separately,
+     * and {@link #getPointerId()} tells the pointer in the callbacks.
+     *
+     * @param pointerId 0 to MAX_POINTERS - 1
+     */
+    public void touchDown(int pointerId, float x, float y, long time) {
+    	if (pointerId < 0 || pointerId >= MAX_POINTERS)
+    		return;
+    	mDownPointers |= 1 << pointerId;
+    	mPointerId = pointerId;
+        mIsSingleTap[pointerId] = true;
+        mListener.onDown(x, y, time);
+    	getStrokeTracker(pointerId).addTouchDown(x, y, time);
+    	if (mFilter != null) {
+    		if (mFilters[pointerId] == null)
+    			mFilters[pointerId] = mFilter.newInstance();
+    		mFilters[pointerId].reset(x, y, time);
+    	}
+    	if (mResampler != null) {
+    		if (mResamplers[pointerId] == null)
+    			mResamplers[pointerId] = mResampler.newInstance();
+    		mResamplers[pointerId].reset(x, y, time);
+    	}
+    	mStrokeIndex[pointerId] = 0;
+    	mPredicted[pointerId] = false;
+    	mLastMotionX[pointerId] = x;
+    	mLastMotionY[pointerId] = y;
+    }
+
+    public void touchMove(int pointerId, float x, float y, long time) {
+    	if (!isDown(pointerId))
+    		return;
+    	if (mResamplers[pointerId] != null) {
+    		mSingleXY[0] = x;
+    		mSingleXY[1] = y;
+    		mSingleTime[0] = time;
+    		touchMoves(pointerId, mSingleXY, mSingleTime, 1);
+    		return;
+    	}
+    	mPointerId = pointerId;
+    	if (mFilters[pointerId] != null) {
+    		final float[] filtered = mFilteredXY;
+    		filtered[0] = x;
+    		filtered[1] = y;
+    		mFilters[pointerId].filter(filtered, 0, time);
+    		x = filtered[0];
+    		y = filtered[1];
+    	}
+    	final StrokeTracker tracker = mStrokeTracker[pointerId];
+    	int state = tracker.addTouchMove(x, y, time);
+    	switch(state) {
+    	case StrokeTracker.STROKE_START:
+    	case StrokeTracker.STROKE_PREDICTED_START:
+    	case StrokeTracker.STROKE_PREDICTION_CANCEL:
+    		notifyStart(pointerId, state, x, y, time, tracker.getStrokeStartDirectionX(), tracker.getStrokeStartDirectionY());
+    		break;
+    	case StrokeTracker.STROKE_MOVE:
+    		final float distanceX = x - mLastMotionX[pointerId];
+    		final float distanceY = y - mLastMotionY[pointerId];
+    		mListener.onStrokeMove(x, y, time, distanceX, distanceY, (float)Math.sqrt(distanceX * distanceX + distanceY * distanceY));
+    		break;
+    	}
+    	mLastMotionX[pointerId] = x;
+    	mLastMotionY[pointerId] = y;
+    }
+
+    public void touchMoves(int pointerId, float[] xy, long[] t, int count) {
+    	if (count <= 0 || !isDown(pointerId))
+    		return;
+    	mPointerId = pointerId;
+    	if (mFilters[pointerId] != null)
+    		xy = filter(mFilters[pointerId], xy, t, count);
+    	if (mResamplers[pointerId] != null) {
+    		final TouchResampler resampler = mResamplers[pointerId];
+    		count = resampler.resample(xy, t, count);
+    		if (count == 0)
+    			return;
+    		xy = resampler.getXY();
+    		t = resampler.getTime();
+    	}
+    	final StrokeTracker.BatchResult result = mStrokeTracker[pointerId].addTouchMoves(xy, t, count);
+    	final int startCount = result.getStartCount();
+    	for (int segment = 0; segment <= startCount; segment++) {
+    		if (segment > 0) {
+    			final int i = segment - 1;
+    			final int sample = result.getStartSample(i);
+    			notifyStart(pointerId, result.getStartType(i), xy[sample * 2], xy[sample * 2 + 1], t[sample],
+    					result.getStartDirectionX(i), result.getStartDirectionY(i));
+    		}
+    		if (result.getMoveCount(segment) > 0) {
+    			final int sample = result.getLastMoveSample(segment);
+    			mListener.onStrokeMove(xy[sample * 2], xy[sample * 2 + 1], t[sample],
+    					result.getMoveDistanceX(segment), result.getMoveDistanceY(segment), result.getMoveLength(segment));
+    		}
+    	}
+    	mLastMotionX[pointerId] = xy[(count - 1) * 2];
+    	mLastMotionY[pointerId] = xy[(count - 1) * 2 + 1];
+    }
+
+    public boolean touchUp(int pointerId, float x, float y, long time) {
+    	if (!isDown(pointerId))
+    		return false;
+    	return end(pointerId, x, y, time, true);
+    }
+
+    /**
+     * Ends the gesture of the pointer without a tap, for a cancelled touch.
+     * A pending prediction is cancelled and onUp is called, but never onSingleTapUp.
+     */
+    public void touchCancel(int pointerId, float x, float y, long time) {
+    	if (isDown(pointerId))
+    		end(pointerId, x, y, time, false);
+    }
+
+    private boolean isDown(int pointerId) {
+    	return pointerId >= 0 && pointerId < MAX_POINTERS && (mDownPointers & (1 << pointerId)) != 0;
+    }
+
+    private boolean end(int pointerId, float x, float y, long time, boolean tap) {
+    	mDownPointers &= ~(1 << pointerId);
+    	mPointerId = pointerId;
+    	if (mPredicted[pointerId]) {
+    		mPredicted[pointerId] = false;
+    		mPredictedListener.onStrokePredictionCancel(x, y, time, mStrokeIndex[pointerId]);
+    	}
+    	boolean handled = false;
+    	if (tap && mIsSingleTap[pointerId])
+        	handled = mListener.onSingleTapUp(x, y, time);
+    	if (!handled)
+			mListener.onUp(x, y, time);
+    	mLastMotionX[pointerId] = x;
+    	mLastMotionY[pointerId] = y;
+    	return handled;
+    }
+
+    // filtered copy of the batch. the caller's array is not changed.
+    private float[] filter(TouchFilter filter, float[] xy, long[] t, int count) {
+    	if (mFilteredXY.length < count * 2)
+    		mFilteredXY = new float[count * 2];
+    	final float[] filtered = mFilteredXY;
+    	System.arraycopy(xy, 0, filtered, 0, count * 2);
+    	for (int i = 0; i < count; i++)
+    		filter.filter(filtered, i, t[i]);
+    	return filtered;
+    }
+
+    // type is STROKE_START, STROKE_PREDICTED_START or STROKE_PREDICTION_CANCEL. predictions keep the stroke index.
+    private void notifyStart(int pointerId, int type, float x, float y, long time, float directionX, float directionY) {
+    	switch(type) {
+    	case StrokeTracker.STROKE_START:
+    		mPredicted[pointerId] = false;
+    		mListener.onStrokeStart(x, y, time, mStrokeIndex[pointerId], directionX, directionY);
+    		mStrokeIndex[pointerId]++;
+    		mIsSingleTap[pointerId] = false;
+    		break;
+    	case StrokeTracker.STROKE_PREDICTED_START:
+    		mPredicted[pointerId] = true;
+    		mPredictedListener.onStrokeStartPredicted(x, y, time, mStrokeIndex[pointerId], directionX, directionY);
+    		break;
+    	case StrokeTracker.STROKE_PREDICTION_CANCEL:
+    		mPredicted[pointerId] = false;
+    		mPredictedListener.onStrokePredictionCancel(x, y, time, mStrokeIndex[pointerId]);
+    		break;
+    	}
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Snapshot of the sample that started a stroke.
+ * The owner reuses one instance for every stroke, so it is valid until the next stroke starts.
+ * Use {@link #set(StrokeStart)} to keep a copy.
+ */
+public class StrokeStart {
+	private float mX;
+	private float mY;
+	private long mTime;
+	private int mIndex;
+	private float mDirectionX;
+	private float mDirectionY;
+
+	public StrokeStart() {
+	}
+
+	void set(float x, float y, long time, int index, float directionX, float directionY) {
+		mX = x;
+		mY = y;
+		mTime = time;
+		mIndex = index;
+		mDirectionX = directionX;
+		mDirectionY = directionY;
+	}
+
+	public void set(StrokeStart that) {
+		set(that.mX, that.mY, that.mTime, that.mIndex, that.mDirectionX, that.mDirectionY);
+	}
+
+	public float getX() {
+		return mX;
+	}
+
+	public float getY() {
+		return mY;
+	}
+
+	/**
+	 * @return time of the sample in milliseconds. Same time base as the input.
+	 */
+	public long getTime() {
+		return mTime;
+	}
+
+	/**
+	 * @return stroke index since the down. 0 is the first stroke.
+	 */
+	public int getIndex() {
+		return mIndex;
+	}
+
+	public float getDirectionX() {
+		return mDirectionX;
+	}
+
+	public float getDirectionY() {
+		return mDirectionY;
+	}
+
+	@Override
+	public String toString() {
+		return "StrokeStart "+mIndex+" "+mX+","+mY+" t="+mTime+", direction "+mDirectionX+", "+mDirectionY;
+	}
+}
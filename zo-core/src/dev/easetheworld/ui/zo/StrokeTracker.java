@@ -0,0 +1,718 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import dev.easetheworld.recentbuffer.FloatPairRingBuffer;
+
+
+public class StrokeTracker {
+	
+	private static final String TAG = "StrokeTracker";
+	
+	private static final int MIN_POINTS_FOR_VECTOR = 3;
+	private static final float DEFAULT_TURN_ANGLE = 90f;
+	private float mTurnAngle;
+	private float mMinCosineSquareForNewStroke;
+	
+	private final float mMinLengthForVector;
+	private final float mMinLengthForStroke;
+	
+	// turn detection. with the default window, V1 and V2 are the vectors between the samples 4, 2 and 0 back.
+	// with a larger window, the newest 3 * window samples are 3 blocks, C (newest), B and A.
+	// V1 = B - A and V2 = C - B from the block sums, which are window times the differences of the block means.
+	// the sums are rolled by one add and one subtract per block per sample, so any window is O(1) per sample.
+	private static final int DEFAULT_TURN_WINDOW = MIN_POINTS_FOR_VECTOR - 1;
+	private int mTurnWindow;
+	private float mMinLengthForBlockVector; // mMinLengthForVector * window^2, for the block sums
+	private FloatPairRingBuffer mPointBuffer; // 3 blocks and the sample leaving A
+	// double, or the rounding of every add and subtract builds up on long strokes with large coordinates.
+	private double mSumAX, mSumAY, mSumBX, mSumBY, mSumCX, mSumCY;
+	private float mV1X, mV1Y, mV1Length; // last long enough V1, length 0 if none
+	// last angle, kept as products so the division is only done by getCosineSquareAngle()
+	private float mInnerProduct;
+	private float mLengthProduct; // 0 if the angle is invalid
+	
+	private float mTurningPointX;
+	private float mTurningPointY;
+	private final VectorF mStrokeStart;
+	
+	private float mLastX;
+	private float mLastY;
+	
+	private final BatchResult mBatchResult;
+	
+	// kinematics. exponentially smoothed like a VelocityTracker without the sample window.
+	private static final long NO_TIME = Long.MIN_VALUE;
+	private static final float VELOCITY_TIME_CONSTANT = 0.03f; // seconds
+	private long mKinematicTime; // time of the last sample used for kinematics, NO_TIME if none.
+	private float mKinematicX;
+	private float mKinematicY;
+	private boolean mHasVelocity;
+	private float mVelocityX; // pixels per second
+	private float mVelocityY;
+	private float mAccelerationX; // pixels per second^2
+	private float mAccelerationY;
+	
+	/**
+	 * @param touchSlop distance in pixels a touch can wander before it is a stroke.
+	 * On Android, this is ViewConfiguration.getScaledTouchSlop().
+	 */
+	public StrokeTracker(float touchSlop) {
+        mStrokeStart = new VectorF();
+        mBatchResult = new BatchResult();
+        
+        mMinLengthForStroke = touchSlop * touchSlop;
+        mMinLengthForVector = mMinLengthForStroke / 16f;
+        setTurnWindow(DEFAULT_TURN_WINDOW);
+        setTurnAngle(DEFAULT_TURN_ANGLE);
+	}
+	
+	/**
+	 * Angle in degrees between the direction vectors above which a new stroke starts. Default is 90.
+	 */
+	public void setTurnAngle(float degrees) {
+		if (degrees <= 0f || degrees >= 180f)
+			throw new IllegalArgumentException("angle must be between 0 and 180 : "+degrees);
+		mTurnAngle = degrees;
+		mMinCosineSquareForNewStroke = (float)cosineSquare(degrees);
+	}
+	
+	public float getTurnAngle() {
+		return mTurnAngle;
+	}
+	
+	/**
+	 * Number of samples each direction vector of the turn detection spans. Default is 2,
+	 * which compares the vectors between the samples 4, 2 and 0 back.
+	 * A larger window compares the means of the last three blocks of window samples,
+	 * so it is less sensitive to digitizer noise but finds the turn window samples later.
+	 * The cost per sample does not depend on the window. Something like 4 to 8 suits 240Hz digitizers.
+	 * Allocates, so call it before the touch down, not during a gesture.
+	 */
+	public void setTurnWindow(int samples) {
+		if (samples <= 0)
+			throw new IllegalArgumentException("window must be positive : "+samples);
+		mTurnWindow = samples;
+		mMinLengthForBlockVector = mMinLengthForVector * samples * samples;
+		mPointBuffer = new FloatPairRingBuffer(samples * 3 + 1);
+		mState = STROKE_TURNING;
+	}
+	
+	public int getTurnWindow() {
+		return mTurnWindow;
+	}
+	
+	public static final int STROKE_TURNING = 0;
+	public static final int STROKE_START = 1;
+	public static final int STROKE_MOVE = 2;
+	/**
+	 * Returned by addTouchMove with prediction on, when the velocity says a stroke will start soon.
+	 * The state is still STROKE_TURNING. STROKE_START (confirm) or STROKE_PREDICTION_CANCEL follows.
+	 */
+	public static final int STROKE_PREDICTED_START = 3;
+	/**
+	 * Returned by addTouchMove when the touch turned before the predicted stroke started.
+	 */
+	public static final int STROKE_PREDICTION_CANCEL = 4;
+	private int mState;
+	
+	// prediction
+	private long mPredictionHorizon; // milliseconds, 0 is off
+	private boolean mPredicted;
+	
+	private static final float COSINE_FOR_INVALID_VECTORS = 1f;
+	
+	/**
+	 * Call this at touch down event with x, y.
+	 * Velocity and acceleration are not tracked. Use {@link #addTouchDown(float, float, long)} for them.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void addTouchDown(float x, float y) {
+		addTouchDown(x, y, NO_TIME);
+	}
+	
+	/**
+	 * Call this at touch down event with x, y and the event time.
+	 * 
+	 * @param time event time in milliseconds
+	 */
+	public void addTouchDown(float x, float y, long time) {
+		mPointBuffer.clear();
+		mPointBuffer.add(x, y);
+		mSumCX = x;
+		mSumCY = y;
+		mSumBX = mSumBY = mSumAX = mSumAY = 0;
+		mV1Length = 0f;
+		mLengthProduct = 0f;
+		
+		mTurningPointX = x;
+		mTurningPointY = y;
+		mLastX = x;
+		mLastY = y;
+		mState = STROKE_TURNING;
+		mPredicted = false;
+		
+		mKinematicTime = time;
+		mKinematicX = x;
+		mKinematicY = y;
+		mHasVelocity = false;
+		mVelocityX = 0f;
+		mVelocityY = 0f;
+		mAccelerationX = 0f;
+		mAccelerationY = 0f;
+	}
+	
+	/**
+	 * Call this at touch move event with x, y.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public int addTouchMove(float x, float y) {
+		return addTouchMove(x, y, NO_TIME);
+	}
+	
+	/**
+	 * Call this at touch move event with x, y and the sample time.
+	 * For historical samples, this is MotionEvent.getHistoricalEventTime().
+	 * 
+	 * @param time sample time in milliseconds
+	 */
+	public int addTouchMove(float x, float y, long time) {
+		if (time != NO_TIME)
+			updateKinematics(x, y, time);
+		final float turningPointX = mTurningPointX;
+		final float turningPointY = mTurningPointY;
+		if (detectTurn(x, y)) {
+//			android.util.Log.e(TAG, "Turned");
+			mState = STROKE_TURNING;
+		}
+		
+		switch(mState) {
+		case STROKE_TURNING:
+			// turned before the predicted start
+			final boolean cancel = mPredicted && (mTurningPointX != turningPointX || mTurningPointY != turningPointY);
+			if (mStrokeStart.checkAndSet(mTurningPointX, mTurningPointY, x, y, mMinLengthForStroke)) { // long enough to be a stroke
+//				android.util.Log.e(TAG, "Started");
+				mState = STROKE_START;
+				mPredicted = false;
+			} else if (cancel) {
+				mPredicted = false;
+				mLastX = x;
+				mLastY = y;
+				return STROKE_PREDICTION_CANCEL;
+			} else if (mPredictionHorizon > 0 && !mPredicted && mHasVelocity && predictStart(x, y)) {
+				mPredicted = true;
+				mLastX = x;
+				mLastY = y;
+				return STROKE_PREDICTED_START;
+			}
+			break;
+		case STROKE_START:
+			mState = STROKE_MOVE;
+			break;
+		}
+		mLastX = x;
+		mLastY = y;
+		return mState;
+	}
+	
+	/**
+	 * Call this at touch move event with all the samples of the event. (historical ones and the current one)
+	 * Same as calling addTouchMove for each sample, but the result is summarized
+	 * so the caller can dispatch once per event instead of once per sample.
+	 * 
+	 * @param xy x0, y0, x1, y1, ... oldest first
+	 * @param count number of samples in xy
+	 * @return summary of this batch. It is reused by the next call.
+	 */
+	public BatchResult addTouchMoves(float[] xy, int count) {
+		return addTouchMoves(xy, null, count);
+	}
+	
+	/**
+	 * Same as {@link #addTouchMoves(float[], int)} with the time of each sample.
+	 * 
+	 * @param t time of each sample in milliseconds, or null if unknown.
+	 */
+	public BatchResult addTouchMoves(float[] xy, long[] t, int count) {
+		final BatchResult result = mBatchResult;
+		result.reset();
+		for (int i = 0; i < count; i++) {
+			final float x = xy[i << 1];
+			final float y = xy[(i << 1) + 1];
+			final float distanceX = x - mLastX;
+			final float distanceY = y - mLastY;
+			final int state = addTouchMove(x, y, t == null ? NO_TIME : t[i]);
+			switch(state) {
+			case STROKE_START:
+			case STROKE_PREDICTED_START:
+			case STROKE_PREDICTION_CANCEL:
+				result.addStart(i, state, mStrokeStart.x, mStrokeStart.y);
+				break;
+			case STROKE_MOVE:
+				result.addMove(i, distanceX, distanceY);
+				break;
+			}
+		}
+		result.mFinalState = mState;
+		return result;
+	}
+	
+	/**
+	 * Predict stroke starts from the velocity. A stroke is predicted if the touch would be out of the touch slop
+	 * after horizon milliseconds at the current velocity, and it is already out of half of the slop.
+	 * Needs sample times. 0 to turn off, which is the default.
+	 */
+	public void setPredictionHorizon(long horizon) {
+		mPredictionHorizon = horizon;
+	}
+	
+	public long getPredictionHorizon() {
+		return mPredictionHorizon;
+	}
+	
+	private boolean detectTurn(float x, float y) {
+		mLengthProduct = 0f;
+		if (mTurnWindow == DEFAULT_TURN_WINDOW)
+			return detectTurnByPoints(x, y);
+		return detectTurnByBlocks(x, y);
+	}
+	
+	// V1 from the samples 4 to 2 back, kept until a long enough one comes, and V2 from 2 back to the new sample.
+	private boolean detectTurnByPoints(float x, float y) {
+		final FloatPairRingBuffer buffer = mPointBuffer;
+		buffer.add(x, y);
+		
+		final int size = buffer.getSize();
+		final int m = MIN_POINTS_FOR_VECTOR - 1;
+		final int s = (MIN_POINTS_FOR_VECTOR - 1) * 2;
+		if (size > s) {
+			final float v1x = buffer.getX(m) - buffer.getX(s);
+			final float v1y = buffer.getY(m) - buffer.getY(s);
+			final float v1Length = v1x * v1x + v1y * v1y;
+			if (v1Length > mMinLengthForVector) {
+				mV1X = v1x;
+				mV1Y = v1y;
+				mV1Length = v1Length;
+			}
+		}
+		if (size <= m)
+			return false;
+		final float v2x = x - buffer.getX(m);
+		final float v2y = y - buffer.getY(m);
+		final float v2Length = v2x * v2x + v2y * v2y;
+		if (v2Length <= mMinLengthForVector || mV1Length == 0f)
+			return false;
+		
+		mInnerProduct = mV1X * v2x + mV1Y * v2y;
+		mLengthProduct = mV1Length * v2Length;
+		if (getCosineSquareAngle() >= mMinCosineSquareForNewStroke)
+			return false;
+		
+		mTurningPointX = buffer.getX(m);
+		mTurningPointY = buffer.getY(m);
+		// remove the previous stroke part.
+		buffer.removeSince(MIN_POINTS_FOR_VECTOR);
+		mV1Length = 0f;
+		return true;
+	}
+	
+	// roll the block sums by the new sample and compare V1 and V2 without division.
+	private boolean detectTurnByBlocks(float x, float y) {
+		final FloatPairRingBuffer buffer = mPointBuffer;
+		buffer.add(x, y);
+		
+		final int w = mTurnWindow;
+		final int size = buffer.getSize();
+//		android.util.Log.i(TAG, "add x="+x+", y="+y+", size="+size);
+		mSumCX += x;
+		mSumCY += y;
+		if (size > w) {
+			final float bx = buffer.getX(w);
+			final float by = buffer.getY(w);
+			mSumCX -= bx;
+			mSumCY -= by;
+			mSumBX += bx;
+			mSumBY += by;
+		}
+		if (size > w * 2) {
+			final float ax = buffer.getX(w * 2);
+			final float ay = buffer.getY(w * 2);
+			mSumBX -= ax;
+			mSumBY -= ay;
+			mSumAX += ax;
+			mSumAY += ay;
+		}
+		if (size > w * 3) {
+			mSumAX -= buffer.getX(w * 3);
+			mSumAY -= buffer.getY(w * 3);
+		}
+		
+		if (size >= w * 3) {
+			final float v1x = (float)(mSumBX - mSumAX);
+			final float v1y = (float)(mSumBY - mSumAY);
+			final float v1Length = v1x * v1x + v1y * v1y;
+			if (v1Length > mMinLengthForBlockVector) {
+				mV1X = v1x;
+				mV1Y = v1y;
+				mV1Length = v1Length;
+			}
+		}
+		if (size < w * 2 || mV1Length == 0f)
+			return false;
+		final float v2x = (float)(mSumCX - mSumBX);
+		final float v2y = (float)(mSumCY - mSumBY);
+		final float v2Length = v2x * v2x + v2y * v2y;
+		if (v2Length <= mMinLengthForBlockVector)
+			return false;
+		
+		// signed cos^2 < threshold, multiplied by both lengths
+		final float innerProduct = mV1X * v2x + mV1Y * v2y;
+		final float lengthProduct = mV1Length * v2Length;
+		mInnerProduct = innerProduct;
+		mLengthProduct = lengthProduct;
+//		android.util.Log.i(TAG, "cosine="+getCosineSquareAngle());
+		final float signedSquare = innerProduct < 0 ? -innerProduct * innerProduct : innerProduct * innerProduct;
+		if (signedSquare >= mMinCosineSquareForNewStroke * lengthProduct)
+			return false;
+		
+		mTurningPointX = buffer.getX(w);
+		mTurningPointY = buffer.getY(w);
+		// remove the previous stroke part. the turning point stays as the start of B.
+		buffer.removeSince(w + 1);
+		mSumCX = mSumCY = 0;
+		for (int i = 0; i < w; i++) {
+			mSumCX += buffer.getX(i);
+			mSumCY += buffer.getY(i);
+		}
+		mSumBX = mTurningPointX;
+		mSumBY = mTurningPointY;
+		mSumAX = mSumAY = 0;
+		mV1Length = 0f;
+		return true;
+	}
+	
+	// sets the start direction to the predicted one if true.
+	private boolean predictStart(float x, float y) {
+		final float dx = x - mTurningPointX;
+		final float dy = y - mTurningPointY;
+		if (dx * dx + dy * dy <= mMinLengthForStroke / 4f)
+			return false;
+		final float horizon = mPredictionHorizon / 1000f;
+		return mStrokeStart.checkAndSet(mTurningPointX, mTurningPointY, x + mVelocityX * horizon, y + mVelocityY * horizon, mMinLengthForStroke);
+	}
+	
+	// samples with the same time are merged into the next sample with a later time.
+	private void updateKinematics(float x, float y, long time) {
+		if (mKinematicTime == NO_TIME) {
+			mKinematicTime = time;
+			mKinematicX = x;
+			mKinematicY = y;
+			return;
+		}
+		if (time <= mKinematicTime)
+			return;
+		final float dt = (time - mKinematicTime) / 1000f;
+		final float vx = (x - mKinematicX) / dt;
+		final float vy = (y - mKinematicY) / dt;
+		if (mHasVelocity) {
+			final float alpha = dt / (VELOCITY_TIME_CONSTANT + dt);
+			final float newVelocityX = mVelocityX + alpha * (vx - mVelocityX);
+			final float newVelocityY = mVelocityY + alpha * (vy - mVelocityY);
+			mAccelerationX += alpha * ((newVelocityX - mVelocityX) / dt - mAccelerationX);
+			mAccelerationY += alpha * ((newVelocityY - mVelocityY) / dt - mAccelerationY);
+			mVelocityX = newVelocityX;
+			mVelocityY = newVelocityY;
+		} else {
+			mVelocityX = vx;
+			mVelocityY = vy;
+			mHasVelocity = true;
+		}
+		mKinematicTime = time;
+		mKinematicX = x;
+		mKinematicY = y;
+	}
+	
+	/**
+	 * @return smoothed x velocity in pixels per second. 0 if the samples have no time.
+	 */
+	public float getVelocityX() {
+		return mVelocityX;
+	}
+	
+	public float getVelocityY() {
+		return mVelocityY;
+	}
+	
+	/**
+	 * @return length of the velocity in pixels per second.
+	 */
+	public float getSpeed() {
+		return (float)Math.sqrt(mVelocityX * mVelocityX + mVelocityY * mVelocityY);
+	}
+	
+	/**
+	 * @return smoothed x acceleration in pixels per second^2. 0 if the samples have no time.
+	 */
+	public float getAccelerationX() {
+		return mAccelerationX;
+	}
+	
+	public float getAccelerationY() {
+		return mAccelerationY;
+	}
+	
+	/**
+	 * This is about the angle between two vectors.
+	 * This returns cosine square of the angle except keep the original sign of the cosine.
+	 * 
+	 * @return
+	 */
+	public float getCosineSquareAngle() {
+		if (mLengthProduct == 0f)
+			return COSINE_FOR_INVALID_VECTORS;
+		final float result = mInnerProduct * mInnerProduct / mLengthProduct;
+		return mInnerProduct < 0 ? -result : result; // keep the sign even though its magnitude is squared.
+	}
+	
+	/**
+	 * return the current state : turning, stroke start, stroke move
+	 * @return
+	 */
+	public int getState() {
+		return mState;
+	}
+	
+	
+	/**
+	 * return the x of the start direction of the current stroke.
+	 * @return
+	 */
+	public float getStrokeStartDirectionX() {
+		return mStrokeStart.x;
+	}
+	
+	/**
+	 * return the y of the start direction of the current stroke.
+	 * @return
+	 */
+	public float getStrokeStartDirectionY() {
+		return mStrokeStart.y;
+	}
+	
+	/**
+	 * Summary of {@link StrokeTracker#addTouchMoves(float[], int)}.
+	 * The batch is split into segments by the stroke starts.
+	 * Segment 0 is the moves before the first start (the stroke of the previous batch),
+	 * segment i is the moves after the i-th start. So there are getStartCount() + 1 segments.
+	 */
+	public static class BatchResult {
+		private int mStartCount;
+		private int[] mStartSample;
+		private int[] mStartType;
+		private float[] mStartDirection; // x0, y0, x1, y1, ...
+		
+		private int[] mMoveCount;
+		private int[] mLastMoveSample;
+		private float[] mMoveDistance; // x0, y0, x1, y1, ...
+		private float[] mMoveLength;
+		
+		private int mFinalState;
+		
+		private BatchResult() {
+			allocate(4);
+		}
+		
+		private void allocate(int startCapacity) {
+			int[] startSample = new int[startCapacity];
+			int[] startType = new int[startCapacity];
+			float[] startDirection = new float[startCapacity * 2];
+			int[] moveCount = new int[startCapacity + 1];
+			int[] lastMoveSample = new int[startCapacity + 1];
+			float[] moveDistance = new float[(startCapacity + 1) * 2];
+			float[] moveLength = new float[startCapacity + 1];
+			if (mStartSample != null) {
+				System.arraycopy(mStartSample, 0, startSample, 0, mStartCount);
+				System.arraycopy(mStartType, 0, startType, 0, mStartCount);
+				System.arraycopy(mStartDirection, 0, startDirection, 0, mStartCount * 2);
+				System.arraycopy(mMoveCount, 0, moveCount, 0, mStartCount + 1);
+				System.arraycopy(mLastMoveSample, 0, lastMoveSample, 0, mStartCount + 1);
+				System.arraycopy(mMoveDistance, 0, moveDistance, 0, (mStartCount + 1) * 2);
+				System.arraycopy(mMoveLength, 0, moveLength, 0, mStartCount + 1);
+			}
+			mStartSample = startSample;
+			mStartType = startType;
+			mStartDirection = startDirection;
+			mMoveCount = moveCount;
+			mLastMoveSample = lastMoveSample;
+			mMoveDistance = moveDistance;
+			mMoveLength = moveLength;
+		}
+		
+		private void reset() {
+			mStartCount = 0;
+			clearSegment(0);
+		}
+		
+		private void clearSegment(int segment) {
+			mMoveCount[segment] = 0;
+			mLastMoveSample[segment] = -1;
+			mMoveDistance[segment * 2] = 0f;
+			mMoveDistance[segment * 2 + 1] = 0f;
+			mMoveLength[segment] = 0f;
+		}
+		
+		private void addStart(int sample, int type, float directionX, float directionY) {
+			if (mStartCount == mStartSample.length)
+				allocate(mStartCount * 2);
+			mStartSample[mStartCount] = sample;
+			mStartType[mStartCount] = type;
+			mStartDirection[mStartCount * 2] = directionX;
+			mStartDirection[mStartCount * 2 + 1] = directionY;
+			mStartCount++;
+			clearSegment(mStartCount);
+		}
+		
+		private void addMove(int sample, float distanceX, float distanceY) {
+			final int segment = mStartCount;
+			mMoveCount[segment]++;
+			mLastMoveSample[segment] = sample;
+			mMoveDistance[segment * 2] += distanceX;
+			mMoveDistance[segment * 2 + 1] += distanceY;
+			mMoveLength[segment] += (float)Math.sqrt(distanceX * distanceX + distanceY * distanceY);
+		}
+		
+		public int getStartCount() {
+			return mStartCount;
+		}
+		
+		/**
+		 * @return index in the batch of the sample that started the i-th stroke.
+		 */
+		public int getStartSample(int i) {
+			return mStartSample[i];
+		}
+		
+		/**
+		 * @return STROKE_START, or STROKE_PREDICTED_START or STROKE_PREDICTION_CANCEL with prediction on.
+		 * Predictions split the segments like starts, but no moves follow them.
+		 */
+		public int getStartType(int i) {
+			return mStartType[i];
+		}
+		
+		public float getStartDirectionX(int i) {
+			return mStartDirection[i * 2];
+		}
+		
+		public float getStartDirectionY(int i) {
+			return mStartDirection[i * 2 + 1];
+		}
+		
+		/**
+		 * @return number of STROKE_MOVE samples in the segment.
+		 */
+		public int getMoveCount(int segment) {
+			return mMoveCount[segment];
+		}
+		
+		/**
+		 * @return index in the batch of the last STROKE_MOVE sample in the segment, -1 if none.
+		 */
+		public int getLastMoveSample(int segment) {
+			return mLastMoveSample[segment];
+		}
+		
+		/**
+		 * @return sum of x distances of the STROKE_MOVE samples in the segment.
+		 */
+		public float getMoveDistanceX(int segment) {
+			return mMoveDistance[segment * 2];
+		}
+		
+		public float getMoveDistanceY(int segment) {
+			return mMoveDistance[segment * 2 + 1];
+		}
+		
+		/**
+		 * @return path length of the STROKE_MOVE samples in the segment.
+		 */
+		public float getMoveLength(int segment) {
+			return mMoveLength[segment];
+		}
+		
+		/**
+		 * @return state after the last sample of the batch.
+		 */
+		public int getFinalState() {
+			return mFinalState;
+		}
+	}
+	
+	private static class VectorF {
+		private float x;
+		private float y;
+		private float length;
+		
+		private VectorF() {
+			clear();
+		}
+		
+		private void set(float x, float y, float length) {
+			this.x = x;
+			this.y = y;
+			this.length = length;
+		}
+		
+		private void clear() {
+			set(0, 0, 0);
+		}
+		
+		private boolean checkAndSet(float x1, float y1, float x2, float y2, float minLength) {
+			float vx = x2 - x1;
+			float vy = y2 - y1;
+			float vl = vx * vx + vy * vy;
+			if (vl > minLength) {
+//				android.util.Log.w(TAG, "    checkAndSet vx="+vx+", vy="+vy+", vl="+vl);
+				set(vx, vy, vl);
+				return true;
+			} else {
+//				android.util.Log.i(TAG, "    checkAndSet vx="+vx+", vy="+vy+", vl="+vl);
+				return false;
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return x+", "+y+", length="+length;
+		}
+	}
+    
+    // keep the sign, square the magnitude
+    private static double cosineSquare(double angdeg) {
+    	double cosine = Math.cos(Math.toRadians(angdeg));
+    	if (cosine > 0)
+    		return cosine * cosine;
+    	else
+    		return -(cosine * cosine);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Smooths raw touch samples before {@link StrokeTracker} sees them, so panel jitter is not a turn.
+ * Each axis is filtered separately. Parameters are in pixels and seconds, and the time step is taken
+ * from the sample times, so a filter works the same at 60Hz and 240Hz.
+ * A filter has the state of one touch. {@link StrokeGestureEngine} makes one per pointer with newInstance().
+ * No allocation after construction.
+ */
+public interface TouchFilter {
+
+	/** Seconds between the down and a move with the same time. */
+	static final float DEFAULT_TIME_STEP = 1f / 120f;
+
+	/**
+	 * Start a new touch at the down sample. The down sample itself is not changed.
+	 *
+	 * @param time sample time in milliseconds
+	 */
+	void reset(float x, float y, long time);
+
+	/**
+	 * Replace xy[index * 2] and xy[index * 2 + 1] with the filtered sample.
+	 *
+	 * @param time sample time in milliseconds. Samples with the time of the previous one use the previous time step.
+	 */
+	void filter(float[] xy, int index, long time);
+
+	/**
+	 * @return filter with the same parameters and no state.
+	 */
+	TouchFilter newInstance();
+
+	/**
+	 * One Euro filter (Casiez et al. 2012). A low pass filter whose cutoff grows with the speed,
+	 * so a slow touch is smoothed and a fast stroke has little lag.
+	 */
+	public static class OneEuro implements TouchFilter {
+		private final float mMinCutoff;
+		private final float mBeta;
+		private final float mDerivativeCutoff;
+		private final Axis mX = new Axis();
+		private final Axis mY = new Axis();
+		private long mTime;
+		private float mTimeStep; // seconds
+
+		/**
+		 * Same as OneEuro(1f, 0.03f, 1f).
+		 */
+		public OneEuro() {
+			this(1f, 0.03f, 1f);
+		}
+
+		/**
+		 * @param minCutoff cutoff frequency in Hz when the touch does not move. Lower removes more jitter.
+		 * @param beta cutoff increase in Hz per pixel per second of speed. Higher has less lag in fast strokes.
+		 * @param derivativeCutoff cutoff frequency in Hz of the speed estimate.
+		 */
+		public OneEuro(float minCutoff, float beta, float derivativeCutoff) {
+			if (minCutoff <= 0 || derivativeCutoff <= 0)
+				throw new IllegalArgumentException("cutoff must be positive");
+			mMinCutoff = minCutoff;
+			mBeta = beta;
+			mDerivativeCutoff = derivativeCutoff;
+		}
+
+		@Override
+		public void reset(float x, float y, long time) {
+			mTime = time;
+			mTimeStep = DEFAULT_TIME_STEP;
+			mX.reset(x);
+			mY.reset(y);
+		}
+
+		@Override
+		public void filter(float[] xy, int index, long time) {
+			if (time > mTime) {
+				mTimeStep = (time - mTime) / 1000f;
+				mTime = time;
+			}
+			final float dt = mTimeStep;
+			xy[index * 2] = mX.filter(xy[index * 2], dt);
+			xy[index * 2 + 1] = mY.filter(xy[index * 2 + 1], dt);
+		}
+
+		@Override
+		public TouchFilter newInstance() {
+			return new OneEuro(mMinCutoff, mBeta, mDerivativeCutoff);
+		}
+
+		private static float alpha(float cutoff, float dt) {
+			final float tau = 1f / (2f * (float)Math.PI * cutoff);
+			return dt / (tau + dt);
+		}
+
+		private class Axis {
+			private float mValue;
+			private float mDerivative;
+
+			private void reset(float value) {
+				mValue = value;
+				mDerivative = 0f;
+			}
+
+			private float filter(float value, float dt) {
+				mDerivative += alpha(mDerivativeCutoff, dt) * ((value - mValue) / dt - mDerivative);
+				final float cutoff = mMinCutoff + mBeta * Math.abs(mDerivative);
+				mValue += alpha(cutoff, dt) * (value - mValue);
+				return mValue;
+			}
+		}
+	}
+
+	/**
+	 * Kalman filter of a constant velocity model. The position and velocity of each axis are estimated,
+	 * and the acceleration is the process noise. Smoother than OneEuro at constant speed,
+	 * but it overshoots a little where the touch turns.
+	 */
+	public static class Kalman implements TouchFilter {
+		private final float mAccelerationNoise;
+		private final float mMeasurementVariance;
+		private final Axis mX = new Axis();
+		private final Axis mY = new Axis();
+		private long mTime;
+		private float mTimeStep; // seconds
+
+		/**
+		 * Same as Kalman(20000f, 1f).
+		 */
+		public Kalman() {
+			this(20000f, 1f);
+		}
+
+		/**
+		 * @param accelerationNoise spectral density of the acceleration in pixels^2 / second^3.
+		 * Higher follows turns faster and smooths less.
+		 * @param measurementNoise standard deviation of the panel jitter in pixels.
+		 */
+		public Kalman(float accelerationNoise, float measurementNoise) {
+			if (accelerationNoise <= 0 || measurementNoise <= 0)
+				throw new IllegalArgumentException("noise must be positive");
+			mAccelerationNoise = accelerationNoise;
+			mMeasurementVariance = measurementNoise * measurementNoise;
+		}
+
+		@Override
+		public void reset(float x, float y, long time) {
+			mTime = time;
+			mTimeStep = DEFAULT_TIME_STEP;
+			mX.reset(x);
+			mY.reset(y);
+		}
+
+		@Override
+		public void filter(float[] xy, int index, long time) {
+			if (time > mTime) {
+				mTimeStep = (time - mTime) / 1000f;
+				mTime = time;
+			}
+			final float dt = mTimeStep;
+			xy[index * 2] = mX.filter(xy[index * 2], dt);
+			xy[index * 2 + 1] = mY.filter(xy[index * 2 + 1], dt);
+		}
+
+		@Override
+		public TouchFilter newInstance() {
+			return new Kalman(mAccelerationNoise, (float)Math.sqrt(mMeasurementVariance));
+		}
+
+		// position, velocity and their covariance (p00 p01 / p01 p11)
+		private class Axis {
+			private float mPosition;
+			private float mVelocity;
+			private float mP00;
+			private float mP01;
+			private float mP11;
+
+			private void reset(float value) {
+				mPosition = value;
+				mVelocity = 0f;
+				mP00 = mMeasurementVariance;
+				mP01 = 0f;
+				mP11 = mAccelerationNoise; // unknown velocity. about the speed reached in one second.
+			}
+
+			private float filter(float value, float dt) {
+				// predict. P = F P F' + Q with the white noise acceleration Q.
+				final float q = mAccelerationNoise;
+				final float dt2 = dt * dt;
+				mPosition += mVelocity * dt;
+				mP00 += dt * (2f * mP01 + dt * mP11) + q * dt2 * dt / 3f;
+				mP01 += dt * mP11 + q * dt2 / 2f;
+				mP11 += q * dt;
+				// update with the measured position
+				final float s = mP00 + mMeasurementVariance;
+				final float k0 = mP00 / s;
+				final float k1 = mP01 / s;
+				final float residual = value - mPosition;
+				mPosition += k0 * residual;
+				mVelocity += k1 * residual;
+				mP11 -= k1 * mP01;
+				mP01 -= k1 * mP00;
+				mP00 -= k0 * mP00;
+				return mPosition;
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Turns the samples of a touch into a stream with a fixed time step or a fixed distance between samples,
+ * by linear interpolation between the raw samples. With it the point windows of {@link StrokeTracker}
+ * cover the same time or distance on every panel, and the number of tracker calls does not grow with the report rate.
+ * A resampler has the state of one touch. {@link StrokeGestureEngine} makes one per pointer with newInstance().
+ * The output arrays are reused and only grow, so there is no allocation once they are big enough.
+ */
+public abstract class TouchResampler {
+
+	private float[] mXY = new float[64]; // x0, y0, x1, y1, ...
+	private long[] mTime = new long[32];
+	private int mCount;
+
+	/**
+	 * @return resampler with the same parameters and no state.
+	 */
+	public abstract TouchResampler newInstance();
+
+	/**
+	 * Start a new touch at the down sample. The stream starts from there.
+	 */
+	public abstract void reset(float x, float y, long time);
+
+	// emit the samples between the previous raw sample and this one.
+	abstract void add(float x, float y, long time);
+
+	/**
+	 * Resample the move samples of one event. The result is in getXY() and getTime() until the next call.
+	 *
+	 * @param xy x0, y0, x1, y1, ... oldest first
+	 * @param t time of each sample in milliseconds
+	 * @return number of resampled samples. May be 0.
+	 */
+	public final int resample(float[] xy, long[] t, int count) {
+		mCount = 0;
+		for (int i = 0; i < count; i++)
+			add(xy[i * 2], xy[i * 2 + 1], t[i]);
+		return mCount;
+	}
+
+	public final float[] getXY() {
+		return mXY;
+	}
+
+	public final long[] getTime() {
+		return mTime;
+	}
+
+	final void emit(float x, float y, long time) {
+		if (mCount == mTime.length) {
+			float[] xy = new float[mXY.length * 2];
+			System.arraycopy(mXY, 0, xy, 0, mCount * 2);
+			mXY = xy;
+			long[] t = new long[mTime.length * 2];
+			System.arraycopy(mTime, 0, t, 0, mCount);
+			mTime = t;
+		}
+		mXY[mCount * 2] = x;
+		mXY[mCount * 2 + 1] = y;
+		mTime[mCount] = time;
+		mCount++;
+	}
+
+	/**
+	 * One sample every interval milliseconds from the down, at most 1000 / interval tracker calls per second.
+	 * A sample is emitted once the raw samples reach its time, so the stream is up to one interval behind.
+	 * Slow strokes move only a few pixels per interval, which may be too short for the turn detection
+	 * with a small interval. Use a larger turn window of StrokeTracker, or Distance.
+	 */
+	public static class Time extends TouchResampler {
+		private final float mInterval;
+		private float mLastX;
+		private float mLastY;
+		private long mLastTime;
+		private double mNextTime;
+
+		/**
+		 * @param interval milliseconds between samples. 4 is about a 240Hz panel.
+		 */
+		public Time(float interval) {
+			if (interval <= 0)
+				throw new IllegalArgumentException("interval must be positive : "+interval);
+			mInterval = interval;
+		}
+
+		@Override
+		public TouchResampler newInstance() {
+			return new Time(mInterval);
+		}
+
+		@Override
+		public void reset(float x, float y, long time) {
+			mLastX = x;
+			mLastY = y;
+			mLastTime = time;
+			mNextTime = time + mInterval;
+		}
+
+		@Override
+		void add(float x, float y, long time) {
+			if (time > mLastTime) {
+				final float dx = x - mLastX;
+				final float dy = y - mLastY;
+				final double duration = time - mLastTime;
+				while (mNextTime <= time) {
+					final float f = (float)((mNextTime - mLastTime) / duration);
+					emit(mLastX + f * dx, mLastY + f * dy, Math.round(mNextTime));
+					mNextTime += mInterval;
+				}
+				mLastTime = time;
+			}
+			// samples with the same time : the last one wins
+			mLastX = x;
+			mLastY = y;
+		}
+	}
+
+	/**
+	 * One sample every spacing pixels along the path. Nothing while the touch holds still.
+	 * The time of a sample is interpolated too, so the velocity of StrokeTracker stays right.
+	 */
+	public static class Distance extends TouchResampler {
+		private final float mSpacing;
+		private float mLastX;
+		private float mLastY;
+		private long mLastTime;
+		private float mTravel; // path length since the last emitted sample
+
+		/**
+		 * @param spacing pixels between samples. Something like a quarter of the touch slop
+		 * keeps the stroke detection of StrokeTracker.
+		 */
+		public Distance(float spacing) {
+			if (spacing <= 0)
+				throw new IllegalArgumentException("spacing must be positive : "+spacing);
+			mSpacing = spacing;
+		}
+
+		@Override
+		public TouchResampler newInstance() {
+			return new Distance(mSpacing);
+		}
+
+		@Override
+		public void reset(float x, float y, long time) {
+			mLastX = x;
+			mLastY = y;
+			mLastTime = time;
+			mTravel = 0f;
+		}
+
+		@Override
+		void add(float x, float y, long time) {
+			final float dx = x - mLastX;
+			final float dy = y - mLastY;
+			final float length = (float)Math.sqrt(dx * dx + dy * dy);
+			if (length > 0f) {
+				final long duration = time > mLastTime ? time - mLastTime : 0;
+				float position = mSpacing - mTravel; // along this segment
+				while (position <= length) {
+					final float f = position / length;
+					emit(mLastX + f * dx, mLastY + f * dy, mLastTime + Math.round(f * duration));
+					position += mSpacing;
+				}
+				mTravel = length - (position - mSpacing);
+			}
+			mLastX = x;
+			mLastY = y;
+			if (time > mLastTime)
+				mLastTime = time;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Ring of fixed-size binary event records. Keeps the latest capacity records.
+ * record() is one branch when disabled and writes into a preallocated buffer when enabled.
+ * Not thread safe. Record and dump in the same thread.
+ *
+ * File format (little endian) :
+ * int magic 'ZOTR', int version, int record size, int record count, then the records oldest first.
+ * Record : byte type, byte mode, short reserved, long time, float x, float y, int index, int value, int reserved.
+ */
+public class TraceRecorder {
+
+	public static final int TYPE_DOWN = 1;
+	public static final int TYPE_MOVE = 2;
+	public static final int TYPE_UP = 3;
+	public static final int TYPE_CANCEL = 4;
+	public static final int TYPE_STROKE_START = 5;
+	public static final int TYPE_DISPATCH = 6;
+	public static final int TYPE_CLICK = 7;
+
+	public static final int RECORD_SIZE = 32;
+	private static final int OFFSET_TYPE = 0;
+	private static final int OFFSET_MODE = 1;
+	private static final int OFFSET_TIME = 4;
+	private static final int OFFSET_X = 12;
+	private static final int OFFSET_Y = 16;
+	private static final int OFFSET_INDEX = 20;
+	private static final int OFFSET_VALUE = 24;
+
+	private static final int MAGIC = 0x52544f5a; // "ZOTR" in little endian
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+
+	private final ByteBuffer mBuffer;
+	private final int mCapacity;
+	private int mHead; // next record to write
+	private int mCount;
+	private boolean mEnabled;
+
+	public TraceRecorder(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive : "+capacity);
+		mCapacity = capacity;
+		mBuffer = ByteBuffer.allocate(capacity * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public void setEnabled(boolean enabled) {
+		mEnabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return mEnabled;
+	}
+
+	public void clear() {
+		mHead = 0;
+		mCount = 0;
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @param type one of TYPE_*
+	 * @param time event time in milliseconds
+	 * @param index stroke index, or -1
+	 * @param mode ZOStateMachine mode, or 0
+	 * @param value dispatched value or direction, or 0
+	 */
+	public void record(int type, long time, float x, float y, int index, int mode, int value) {
+		if (!mEnabled)
+			return;
+		final ByteBuffer b = mBuffer;
+		final int offset = mHead * RECORD_SIZE;
+		b.put(offset + OFFSET_TYPE, (byte)type);
+		b.put(offset + OFFSET_MODE, (byte)mode);
+		b.putLong(offset + OFFSET_TIME, time);
+		b.putFloat(offset + OFFSET_X, x);
+		b.putFloat(offset + OFFSET_Y, y);
+		b.putInt(offset + OFFSET_INDEX, index);
+		b.putInt(offset + OFFSET_VALUE, value);
+		if (++mHead == mCapacity)
+			mHead = 0;
+		if (mCount < mCapacity)
+			mCount++;
+	}
+
+	// smaller index is older
+	private int offsetOf(int index) {
+		int i = mHead - mCount + index;
+		if (i < 0)
+			i += mCapacity;
+		return i * RECORD_SIZE;
+	}
+
+	public int getType(int index) {
+		return mBuffer.get(offsetOf(index) + OFFSET_TYPE);
+	}
+
+	public int getMode(int index) {
+		return mBuffer.get(offsetOf(index) + OFFSET_MODE);
+	}
+
+	public long getTime(int index) {
+		return mBuffer.getLong(offsetOf(index) + OFFSET_TIME);
+	}
+
+	public float getX(int index) {
+		return mBuffer.getFloat(offsetOf(index) + OFFSET_X);
+	}
+
+	public float getY(int index) {
+		return mBuffer.getFloat(offsetOf(index) + OFFSET_Y);
+	}
+
+	public int getIndex(int index) {
+		return mBuffer.getInt(offsetOf(index) + OFFSET_INDEX);
+	}
+
+	public int getValue(int index) {
+		return mBuffer.getInt(offsetOf(index) + OFFSET_VALUE);
+	}
+
+	/**
+	 * Write the records, oldest first.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(mCount);
+		out.write(header.array());
+		final byte[] data = mBuffer.array();
+		final int start = offsetOf(0) / RECORD_SIZE;
+		final int first = Math.min(mCount, mCapacity - start);
+		out.write(data, start * RECORD_SIZE, first * RECORD_SIZE);
+		out.write(data, 0, (mCount - first) * RECORD_SIZE);
+	}
+
+	public void writeTo(File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read a dump made by writeTo. The result is disabled and holds exactly the dumped records.
+	 */
+	public static TraceRecorder read(InputStream in) throws IOException {
+		return read(in, Long.MAX_VALUE);
+	}
+
+	// records is the most the stream can have, so a corrupt count fails before the allocation.
+	private static TraceRecorder read(InputStream in, long records) throws IOException {
+		DataInputStream din = new DataInputStream(in);
+		byte[] headerBytes = new byte[HEADER_SIZE];
+		din.readFully(headerBytes);
+		ByteBuffer header = ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+		if (header.getInt() != MAGIC)
+			throw new IOException("not a trace file");
+		int version = header.getInt();
+		if (version != VERSION)
+			throw new IOException("unknown trace version : "+version);
+		if (header.getInt() != RECORD_SIZE)
+			throw new IOException("unknown record size");
+		int count = header.getInt();
+		if (count < 0 || count > Integer.MAX_VALUE / RECORD_SIZE || count > records)
+			throw new IOException("invalid record count : "+count);
+		TraceRecorder trace = new TraceRecorder(Math.max(count, 1));
+		try {
+			din.readFully(trace.mBuffer.array(), 0, count * RECORD_SIZE);
+		} catch (EOFException e) {
+			throw new IOException("truncated trace file");
+		}
+		trace.mCount = count;
+		trace.mHead = count % trace.mCapacity;
+		return trace;
+	}
+
+	public static TraceRecorder read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return read(in, Math.max(0, file.length() - HEADER_SIZE) / RECORD_SIZE);
+		} finally {
+			in.close();
+		}
+	}
+}
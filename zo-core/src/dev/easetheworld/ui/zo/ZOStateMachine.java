@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/ZOUI
+ */
+
+package dev.easetheworld.ui.zo;
+
+/**
+ * Mode Z / mode O logic of {@link ZOTouchListener} without any view.
+ * Stroke callbacks go in, {@link Callback#onMove(int, int)} comes out.
+ * With predicted stroke starts, the mode Z value is dispatched at the prediction
+ * and corrected by another mode Z value if the prediction was wrong.
+ */
+public class ZOStateMachine implements StrokeGestureEngine.OnPredictedStrokeListener {
+
+    public static final int MODE_ZO = 0;
+    public static final int MODE_Z = 1;
+    public static final int MODE_O = 2;
+	private int mStartMode;
+
+	private static final long THRESHOLD_START_MODE_O_INTERVAL = 150;
+
+    public static final int DIRECTION_FORWARD = 1;
+    public static final int DIRECTION_BACKWARD = -DIRECTION_FORWARD;
+
+	private final float mDistanceThreshold;
+
+	// per pointer state, indexed by pointer id.
+	private final int[] mMode = new int[StrokeGestureEngine.MAX_POINTERS];
+	private final int[] mDirection = new int[StrokeGestureEngine.MAX_POINTERS];
+	private final float[] mDistanceSum = new float[StrokeGestureEngine.MAX_POINTERS];
+	private final long[] mDownTime = new long[StrokeGestureEngine.MAX_POINTERS];
+	private final long[] mLastMoveTime = new long[StrokeGestureEngine.MAX_POINTERS];
+	private final StrokeTracker[] mSpeedSource = new StrokeTracker[StrokeGestureEngine.MAX_POINTERS];
+	// mode Z value dispatched at the predicted start, 0 if none.
+	private final int[] mPredictedValue = new int[StrokeGestureEngine.MAX_POINTERS];
+
+	// pointer of the current callback
+	private int mPointerId;
+
+	private GainCurve mGainCurve;
+
+	public static interface Callback {
+		void onDown();
+		void onMove(int mode, int value);
+		void onUp();
+		void onClick();
+		/**
+		 * Notified whenever the sign of the next values is set.
+		 * @param direction DIRECTION_FORWARD or DIRECTION_BACKWARD
+		 */
+		void onDirection(int direction);
+	}
+
+	private final Callback mCallback;
+
+	/**
+	 * @param distanceThreshold distance in pixels for one value in mode O.
+	 * @param callback
+	 */
+	public ZOStateMachine(float distanceThreshold, Callback callback) {
+		mDistanceThreshold = distanceThreshold;
+		mCallback = callback;
+		mStartMode = MODE_ZO;
+	}
+
+	public void setMode(int mode) {
+		mStartMode = mode;
+	}
+
+	/**
+	 * Scale mode O distance by the stroke speed. null for the plain distance. Default is null.
+	 */
+	public void setGainCurve(GainCurve curve) {
+		mGainCurve = curve;
+	}
+
+	/**
+	 * Tracker whose smoothed speed is given to the gain curve, usually the one feeding this state machine.
+	 * Without it, the speed is the move length divided by the time since the previous move.
+	 */
+	public void setSpeedSource(StrokeTracker tracker) {
+		setSpeedSource(0, tracker);
+	}
+
+	public void setSpeedSource(int pointerId, StrokeTracker tracker) {
+		mSpeedSource[pointerId] = tracker;
+	}
+
+	/**
+	 * @return pointer id of the current callback, or of the last one outside callbacks.
+	 * Always 0 with the single pointer methods.
+	 */
+	public int getPointerId() {
+		return mPointerId;
+	}
+
+	/**
+	 * @return mode of the current pointer
+	 */
+	public int getMode() {
+		return mMode[mPointerId];
+	}
+
+	public int getMode(int pointerId) {
+		return mMode[pointerId];
+	}
+
+	/**
+	 * @return direction of the current pointer
+	 */
+	public int getDirection() {
+		return mDirection[mPointerId];
+	}
+
+	public int getDirection(int pointerId) {
+		return mDirection[pointerId];
+	}
+
+	@Override
+	public void onDown(float x, float y, long time) {
+		onDown(0, x, y, time);
+	}
+
+	@Override
+	public void onUp(float x, float y, long time) {
+		onUp(0, x, y, time);
+	}
+
+	@Override
+	public void onStrokeStart(float x, float y, long time, int index, float directionX, float directionY) {
+		onStrokeStart(0, x, y, time, index, directionX, directionY);
+	}
+
+	@Override
+	public void onStrokeMove(float x, float y, long time, float distanceX, float distanceY, float length) {
+		onStrokeMove(0, x, y, time, distanceX, distanceY, length);
+	}
+
+	@Override
+	public boolean onSingleTapUp(float x, float y, long time) {
+		return onSingleTapUp(0, x, y, time);
+	}
+
+	@Override
+	public void onStrokeStartPredicted(float x, float y, long time, int index, float directionX, float directionY) {
+		onStrokeStartPredicted(0, x, y, time, index, directionX, directionY);
+	}
+
+	@Override
+	public void onStrokePredictionCancel(float x, float y, long time, int index) {
+		onStrokePredictionCancel(0, x, y, time, index);
+	}
+
+	/**
+	 * Same as {@link #onDown(float, float, long)} for the given pointer. Each pointer has its own mode and direction.
+	 *
+	 * @param pointerId 0 to StrokeGestureEngine.MAX_POINTERS - 1
+	 */
+	public void onDown(int pointerId, float x, float y, long time) {
+		mPointerId = pointerId;
+		if (mStartMode == MODE_ZO) {
+			mDownTime[pointerId] = time;
+		} else {
+			mDownTime[pointerId] = -1;
+		}
+		mMode[pointerId] = mStartMode;
+		mLastMoveTime[pointerId] = time;
+		mPredictedValue[pointerId] = 0;
+		setDirection(pointerId, DIRECTION_FORWARD);
+		mCallback.onDown();
+	}
+
+	public void onUp(int pointerId, float x, float y, long time) {
+		mPointerId = pointerId;
+		mCallback.onUp();
+	}
+
+	public void onStrokeStart(int pointerId, float x, float y, long time, int index, float directionX, float directionY) {
+		mPointerId = pointerId;
+		if (index == 0 && mDownTime[pointerId] != -1) { // check first down time
+			if ((time - mDownTime[pointerId]) < THRESHOLD_START_MODE_O_INTERVAL)
+				mMode[pointerId] = MODE_Z;
+			else
+				mMode[pointerId] = MODE_O;
+			mDownTime[pointerId] = -1;
+		}
+
+		final int mode = mMode[pointerId];
+		final int predictedValue = mPredictedValue[pointerId];
+		mPredictedValue[pointerId] = 0;
+		switch(mode) {
+		case MODE_Z:
+			if (index == 0) {
+				if (directionY > 0)
+					setDirection(pointerId, DIRECTION_FORWARD);
+				else
+					setDirection(pointerId, DIRECTION_BACKWARD);
+			}
+			if (mDirection[pointerId] != predictedValue) { // already dispatched if the prediction was right
+				if (predictedValue != 0) // take back the wrong direction first, so every mode Z value is 1 or -1
+					mCallback.onMove(mode, -predictedValue);
+				mCallback.onMove(mode, mDirection[pointerId]);
+			}
+			break;
+		case MODE_O:
+			if (predictedValue != 0) { // it was not mode Z
+				mCallback.onMove(MODE_Z, -predictedValue);
+				if (index == 0) // first sign is always positive
+					setDirection(pointerId, DIRECTION_FORWARD);
+			}
+			mDistanceSum[pointerId] = 0;
+			mLastMoveTime[pointerId] = time;
+    		if (index > 0)
+	    		setDirection(pointerId, -mDirection[pointerId]);
+			break;
+		}
+	}
+
+	public void onStrokeMove(int pointerId, float x, float y, long time, float distanceX, float distanceY, float length) {
+		mPointerId = pointerId;
+		final int mode = mMode[pointerId];
+    	switch(mode) {
+    	case MODE_O:
+    		if (mGainCurve != null)
+    			length *= mGainCurve.getGain(getSpeed(pointerId, time, length) / mDistanceThreshold);
+    		mLastMoveTime[pointerId] = time;
+    		float distanceSum = mDistanceSum[pointerId] + length;
+    		int diff = (int)(distanceSum / mDistanceThreshold);
+			mDistanceSum[pointerId] = distanceSum % mDistanceThreshold;
+			mCallback.onMove(mode, mDirection[pointerId] * diff);
+    		break;
+    	}
+	}
+
+	/**
+	 * Dispatch the mode Z value of the predicted stroke now. Nothing in mode O, whose values need the distance.
+	 * The mode is decided again at the confirming onStrokeStart.
+	 */
+	public void onStrokeStartPredicted(int pointerId, float x, float y, long time, int index, float directionX, float directionY) {
+		mPointerId = pointerId;
+		int mode = mMode[pointerId];
+		if (index == 0 && mDownTime[pointerId] != -1)
+			mode = (time - mDownTime[pointerId]) < THRESHOLD_START_MODE_O_INTERVAL ? MODE_Z : MODE_O;
+		if (mode != MODE_Z)
+			return;
+		int value = mDirection[pointerId];
+		if (index == 0) {
+			value = directionY > 0 ? DIRECTION_FORWARD : DIRECTION_BACKWARD;
+			setDirection(pointerId, value); // set again by the confirming onStrokeStart
+		}
+		mPredictedValue[pointerId] = value;
+		mCallback.onMove(MODE_Z, value);
+	}
+
+	/**
+	 * Take back the value of the predicted stroke.
+	 */
+	public void onStrokePredictionCancel(int pointerId, float x, float y, long time, int index) {
+		mPointerId = pointerId;
+		final int predictedValue = mPredictedValue[pointerId];
+		mPredictedValue[pointerId] = 0;
+		if (predictedValue != 0) {
+			mCallback.onMove(MODE_Z, -predictedValue);
+			if (index == 0) // back to the direction of the down
+				setDirection(pointerId, DIRECTION_FORWARD);
+		}
+	}
+
+	public boolean onSingleTapUp(int pointerId, float x, float y, long time) {
+		mPointerId = pointerId;
+		mCallback.onClick();
+		return false;
+	}
+
+	// pixels per second
+	private float getSpeed(int pointerId, long time, float length) {
+		if (mSpeedSource[pointerId] != null)
+			return mSpeedSource[pointerId].getSpeed();
+		if (time <= mLastMoveTime[pointerId])
+			return 0f;
+		return length * 1000f / (time - mLastMoveTime[pointerId]);
+	}
+
+	private void setDirection(int pointerId, int direction) {
+		mDirection[pointerId] = direction;
+		mCallback.onDirection(direction);
+	}
+}